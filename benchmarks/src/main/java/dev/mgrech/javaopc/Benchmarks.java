@@ -0,0 +1,30 @@
+package dev.mgrech.javaopc;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// runs the benchmarks like the JMH launcher, but always with the GC profiler, which reports allocation rates
+// and collections along with the times
+// e.g. 'java -jar target/benchmarks.jar Parse -p fixture=synthetic-statements', '-h' lists all options
+public class Benchmarks
+{
+	public static void main(String[] args) throws Exception
+	{
+		var commandLine = new CommandLineOptions(args);
+
+		if(commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListWithParams()
+		   || commandLine.shouldListProfilers() || commandLine.shouldListResultFormats())
+		{
+			org.openjdk.jmh.Main.main(args);
+			return;
+		}
+
+		var options = new OptionsBuilder().parent(commandLine)
+		                                  .addProfiler(GCProfiler.class)
+		                                  .build();
+
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,404 @@
+package dev.mgrech.javaopc;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// generates source trees of any shape, made of the operators of a class like BigInteger2 that is generated along with them
+// every file is package 'gen' of the source root: the class Num, NumOperators, which declares the arithmetic operators
+// of Num like BigIntegerExtensions does for BigInteger, a class for every static import beyond the ones of the platform,
+// and the programs, whose statements are random but the same for the same shape
+class Corpus
+{
+	// the operators the expressions of the programs are made of, by the symbols --mix takes
+	enum Operator
+	{
+		SUM("+"),
+		DIFFERENCE("-"),
+		PRODUCT("*"),
+		QUOTIENT("/"),
+		NEGATION("neg"),
+		COMPARISON("<"),
+		INVOCATION("()"),
+		SUBSCRIPT("[]");
+
+		final String symbol;
+
+		Operator(String symbol)
+		{
+			this.symbol = symbol;
+		}
+
+		static Set<Operator> parseMix(String mix)
+		{
+			var operators = EnumSet.noneOf(Operator.class);
+
+			for(var symbol : mix.split(","))
+			{
+				var operator = List.of(values()).stream().filter(o -> o.symbol.equals(symbol.trim())).findFirst();
+
+				if(operator.isEmpty())
+					throw new IllegalArgumentException("unknown operator: " + symbol);
+
+				operators.add(operator.get());
+			}
+
+			return operators;
+		}
+
+		static String formatMix(Set<Operator> mix)
+		{
+			return mix.stream().map(o -> o.symbol).collect(Collectors.joining(","));
+		}
+	}
+
+	// the parameters of a corpus, all of which but the mix are numbers a runner can scale
+	static class Shape
+	{
+		static final List<String> PARAMETERS = List.of("files", "statements", "depth", "arity", "conversions", "imports");
+
+		// the number of programs
+		final int files;
+		// the number of statements of the method of each program
+		final int statements;
+		// the number of operators each operand of a statement is nested in
+		final int depth;
+		// the number of arguments of opInvoke
+		final int arity;
+		// the percentage of the operands of arithmetic operators and comparisons that are int literals, which only
+		// match an operator after a conversion
+		final int conversions;
+		// the number of static imports on demand ahead of the one of the operators
+		final int imports;
+		final Set<Operator> mix;
+
+		Shape(int files, int statements, int depth, int arity, int conversions, int imports, Set<Operator> mix)
+		{
+			if(files < 1 || statements < 1 || depth < 0 || arity < 1 || conversions < 0 || conversions > 100 || imports < 0 || mix.isEmpty())
+				throw new IllegalArgumentException("invalid shape: " + describe(files, statements, depth, arity, conversions, imports, mix));
+
+			this.files = files;
+			this.statements = statements;
+			this.depth = depth;
+			this.arity = arity;
+			this.conversions = conversions;
+			this.imports = imports;
+			this.mix = mix;
+		}
+
+		Shape with(String parameter, int value)
+		{
+			switch(parameter)
+			{
+			case "files": return new Shape(value, statements, depth, arity, conversions, imports, mix);
+			case "statements": return new Shape(files, value, depth, arity, conversions, imports, mix);
+			case "depth": return new Shape(files, statements, value, arity, conversions, imports, mix);
+			case "arity": return new Shape(files, statements, depth, value, conversions, imports, mix);
+			case "conversions": return new Shape(files, statements, depth, arity, value, imports, mix);
+			case "imports": return new Shape(files, statements, depth, arity, conversions, value, mix);
+			default: throw new IllegalArgumentException("unknown parameter: " + parameter);
+			}
+		}
+
+		Shape withMix(Set<Operator> mix)
+		{
+			return new Shape(files, statements, depth, arity, conversions, imports, mix);
+		}
+
+		private static String describe(int files, int statements, int depth, int arity, int conversions, int imports, Set<Operator> mix)
+		{
+			return String.format("files=%d statements=%d depth=%d arity=%d conversions=%d imports=%d mix=%s",
+			                     files, statements, depth, arity, conversions, imports, Operator.formatMix(mix));
+		}
+
+		@Override
+		public String toString()
+		{
+			return describe(files, statements, depth, arity, conversions, imports, mix);
+		}
+	}
+
+	// classes of the platform whose static members are imported on demand, before generated classes are
+	private static final List<String> PLATFORM_IMPORTS = List.of("java.lang.Math", "java.util.Collections", "java.util.Arrays",
+	                                                             "java.util.Objects", "java.util.stream.Collectors",
+	                                                             "java.lang.Character", "java.lang.Integer", "java.lang.Long",
+	                                                             "java.lang.Double", "java.util.concurrent.TimeUnit");
+
+	// the variables operands are chosen from, besides the result of the previous statement
+	private static final List<String> VARIABLES = List.of("a", "b", "c");
+
+	private final Shape shape;
+	private final Random random;
+	private final List<Operator> nestedOperators;
+
+	// the number of operators written so far
+	private int operators = 0;
+
+	private Corpus(Shape shape, long seed)
+	{
+		this.shape = shape;
+		this.random = new Random(seed);
+
+		// comparisons yield booleans, so they only appear at the top of a statement
+		this.nestedOperators = shape.mix.stream().filter(o -> o != Operator.COMPARISON).collect(Collectors.toList());
+	}
+
+	// the operators that are only looked up in the type of their operand, i.e. the one whose operators they are
+	private static String numClass(int arity)
+	{
+		var params = IntStream.range(0, arity).mapToObj(i -> "Num arg" + i).collect(Collectors.joining(", "));
+		var sum = IntStream.range(0, arity).mapToObj(i -> " + arg" + i + ".value").collect(Collectors.joining());
+
+		return "package gen;\n"
+		     + "\n"
+		     + "public final class Num implements Comparable<Num>\n"
+		     + "{\n"
+		     + "\tfinal long value;\n"
+		     + "\n"
+		     + "\tpublic Num(long value)\n"
+		     + "\t{\n"
+		     + "\t\tthis.value = value;\n"
+		     + "\t}\n"
+		     + "\n"
+		     + "\tpublic static Num opSubscriptGet(Num num, int index)\n"
+		     + "\t{\n"
+		     + "\t\treturn new Num(num.value + index);\n"
+		     + "\t}\n"
+		     + "\n"
+		     + "\tpublic static Num opInvoke(Num num, " + params + ")\n"
+		     + "\t{\n"
+		     + "\t\treturn new Num(num.value" + sum + ");\n"
+		     + "\t}\n"
+		     + "\n"
+		     + "\t@Override\n"
+		     + "\tpublic int compareTo(Num other)\n"
+		     + "\t{\n"
+		     + "\t\treturn Long.compare(value, other.value);\n"
+		     + "\t}\n"
+		     + "\n"
+		     + "\t@Override\n"
+		     + "\tpublic String toString()\n"
+		     + "\t{\n"
+		     + "\t\treturn Long.toString(value);\n"
+		     + "\t}\n"
+		     + "}\n";
+	}
+
+	private static String method(String signature, String result)
+	{
+		return "\tpublic static Num " + signature + "\n"
+		     + "\t{\n"
+		     + "\t\treturn new Num(" + result + ");\n"
+		     + "\t}\n";
+	}
+
+	// the operators that are found through a static import, declaring them in Num as well would make them ambiguous
+	// conversions of literals are only looked up this way
+	private static String operatorsClass()
+	{
+		return "package gen;\n"
+		     + "\n"
+		     + "public class NumOperators\n"
+		     + "{\n"
+		     + method("opConvert(long value)", "value") + "\n"
+		     + method("opSum(Num left, Num right)", "left.value + right.value") + "\n"
+		     + method("opDifference(Num left, Num right)", "left.value - right.value") + "\n"
+		     + method("opProduct(Num left, Num right)", "left.value * right.value") + "\n"
+		     + method("opQuotient(Num left, Num right)", "right.value == 0 ? left.value : left.value / right.value") + "\n"
+		     + method("opNegate(Num operand)", "-operand.value")
+		     + "}\n";
+	}
+
+	private static String staticsClass(int index)
+	{
+		return "package gen;\n"
+		     + "\n"
+		     + "public class Statics" + index + "\n"
+		     + "{\n"
+		     + "\tpublic static final long LIMIT" + index + " = " + index + ";\n"
+		     + "\n"
+		     + "\tpublic static long scale" + index + "(long value)\n"
+		     + "\t{\n"
+		     + "\t\treturn value * " + index + ";\n"
+		     + "\t}\n"
+		     + "}\n";
+	}
+
+	private static String importedClass(int index)
+	{
+		return index < PLATFORM_IMPORTS.size() ? PLATFORM_IMPORTS.get(index) : "gen.Statics" + index;
+	}
+
+	private String variable(String previous)
+	{
+		var index = random.nextInt(VARIABLES.size() + 1);
+		return index == VARIABLES.size() ? previous : VARIABLES.get(index);
+	}
+
+	// an operand that does not need rewriting, i.e. a variable or a literal
+	private String leaf(String previous)
+	{
+		if(random.nextInt(100) < shape.conversions)
+			return Integer.toString(1 + random.nextInt(99));
+
+		return variable(previous);
+	}
+
+	// an expression of type Num, whose operands are nested in as many operators as its depth
+	private String expression(int depth, String previous)
+	{
+		if(depth == 0 || nestedOperators.isEmpty())
+			return variable(previous);
+
+		var operator = nestedOperators.get(random.nextInt(nestedOperators.size()));
+		var operand = expression(depth - 1, previous);
+		++operators;
+
+		switch(operator)
+		{
+		case NEGATION:
+			return "-(" + operand + ")";
+
+		case SUBSCRIPT:
+			return "(" + operand + ")[" + random.nextInt(10) + "]";
+
+		case INVOCATION:
+			// the arguments of opInvoke are not converted
+			var args = new ArrayList<String>();
+			args.add(operand);
+
+			for(var i = 1; i != shape.arity; ++i)
+				args.add(variable(previous));
+
+			return "f(" + String.join(", ", args) + ")";
+
+		default:
+			var symbol = operator.symbol;
+			var other = leaf(previous);
+			return random.nextBoolean() ? "(" + operand + " " + symbol + " " + other + ")" : "(" + other + " " + symbol + " " + operand + ")";
+		}
+	}
+
+	private String program(int index)
+	{
+		var source = new StringBuilder("package gen;\n\n");
+
+		for(var i = 0; i != shape.imports; ++i)
+			source.append("import static ").append(importedClass(i)).append(".*;\n");
+
+		source.append("import static gen.NumOperators.*;\n\n");
+
+		source.append("public class Program").append(index).append('\n');
+		source.append("{\n");
+		source.append("\tpublic static void run()\n");
+		source.append("\t{\n");
+		source.append("\t\tvar a = new Num(1);\n");
+		source.append("\t\tvar b = new Num(2);\n");
+		source.append("\t\tvar c = new Num(3);\n");
+		source.append("\t\tvar f = new Num(4);\n");
+		source.append("\t\tvar n = 0;\n");
+		source.append("\t\tvar x0 = a;\n");
+
+		var compare = shape.mix.contains(Operator.COMPARISON);
+		var comparisonShare = compare ? 1.0 / shape.mix.size() : 0.0;
+
+		for(var i = 1; i <= shape.statements; ++i)
+		{
+			var previous = "x" + (i - 1);
+
+			if(random.nextDouble() < comparisonShare)
+			{
+				++operators;
+				source.append(String.format("\t\tif(%s < %s)\n\t\t\t++n;\n", expression(shape.depth, previous), leaf(previous)));
+				source.append(String.format("\t\tvar x%d = %s;\n", i, previous));
+			}
+			else
+				source.append(String.format("\t\tvar x%d = %s;\n", i, expression(shape.depth, previous)));
+		}
+
+		source.append(String.format("\t\tSystem.out.println(x%d);\n", shape.statements));
+		source.append("\t\tSystem.out.println(n);\n");
+		source.append("\t}\n");
+		source.append("}\n");
+		return source.toString();
+	}
+
+	// what was generated, the programs are the files to rewrite, the others only declare what they use
+	static class Generated
+	{
+		final Path root;
+		final List<Path> programs;
+		final int operators;
+		final long bytes;
+
+		Generated(Path root, List<Path> programs, int operators, long bytes)
+		{
+			this.root = root;
+			this.programs = programs;
+			this.operators = operators;
+			this.bytes = bytes;
+		}
+	}
+
+	private static long write(Path file, String source)
+	{
+		try
+		{
+			Files.writeString(file, source);
+			return source.length();
+		}
+		catch(IOException ex)
+		{
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	// writes a corpus of the given shape to a source root, replacing the corpus it may contain
+	static Generated generate(Shape shape, Path root, long seed)
+	{
+		var dir = root.resolve("gen");
+
+		try
+		{
+			if(Files.isDirectory(dir))
+			{
+				try(var files = Files.list(dir))
+				{
+					for(var file : (Iterable<Path>)files::iterator)
+						Files.delete(file);
+				}
+			}
+
+			Files.createDirectories(dir);
+		}
+		catch(IOException ex)
+		{
+			throw new UncheckedIOException(ex);
+		}
+
+		var corpus = new Corpus(shape, seed);
+		var bytes = write(dir.resolve("Num.java"), numClass(shape.arity)) + write(dir.resolve("NumOperators.java"), operatorsClass());
+
+		for(var i = PLATFORM_IMPORTS.size(); i < shape.imports; ++i)
+			bytes += write(dir.resolve("Statics" + i + ".java"), staticsClass(i));
+
+		var programs = new ArrayList<Path>();
+
+		for(var i = 0; i != shape.files; ++i)
+		{
+			var file = dir.resolve("Program" + i + ".java");
+			bytes += write(file, corpus.program(i));
+			programs.add(file);
+		}
+
+		return new Generated(root, programs, corpus.operators, bytes);
+	}
+}
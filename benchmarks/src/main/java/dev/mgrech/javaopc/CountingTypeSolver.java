@@ -0,0 +1,68 @@
+package dev.mgrech.javaopc;
+
+import com.github.javaparser.resolution.UnsolvedSymbolException;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.symbolsolver.model.resolution.SymbolReference;
+import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
+
+// counts the names the symbol solver looks up, as the root of the solver tree it sees every lookup, including those
+// the wrapped solvers make while modelling the types they found
+class CountingTypeSolver implements TypeSolver
+{
+	private final TypeSolver solver;
+
+	private TypeSolver parent = null;
+	private long lookups = 0;
+	private long misses = 0;
+
+	CountingTypeSolver(TypeSolver solver)
+	{
+		this.solver = solver;
+		solver.setParent(this);
+	}
+
+	long lookups()
+	{
+		return lookups;
+	}
+
+	long misses()
+	{
+		return misses;
+	}
+
+	@Override
+	public TypeSolver getParent()
+	{
+		return parent;
+	}
+
+	@Override
+	public void setParent(TypeSolver parent)
+	{
+		this.parent = parent;
+	}
+
+	@Override
+	public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name)
+	{
+		++lookups;
+		var ref = solver.tryToSolveType(name);
+
+		if(!ref.isSolved())
+			++misses;
+
+		return ref;
+	}
+
+	@Override
+	public ResolvedReferenceTypeDeclaration solveType(String name) throws UnsolvedSymbolException
+	{
+		var ref = tryToSolveType(name);
+
+		if(!ref.isSolved())
+			throw new UnsolvedSymbolException(name);
+
+		return ref.getCorrespondingDeclaration();
+	}
+}
@@ -0,0 +1,97 @@
+package dev.mgrech.javaopc;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.symbolsolver.JavaSymbolSolver;
+import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.JarTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+import dev.mgrech.javaopc.test.BigInteger2;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+// the programs and type solvers the benchmarks are run with
+class Fixtures
+{
+	// the test programs by the name of their test, or synthetic programs by their kind
+	// the benchmarks run a selection of both, any test can be run with -p fixture=<name>
+	static String source(String name)
+	{
+		switch(name)
+		{
+		case "synthetic-statements": return Synthetic.statements(200);
+		case "synthetic-imports": return Synthetic.staticImports(200);
+		case "synthetic-conversions": return Synthetic.conversions(100);
+		case "synthetic-nesting": return Synthetic.nesting(60);
+		}
+
+		try(var in = Fixtures.class.getResourceAsStream(String.format("/tests/%s/Program.java", name)))
+		{
+			if(in == null)
+				throw new IllegalArgumentException("unknown fixture: " + name);
+
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+		catch(IOException ex)
+		{
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	// the jar or directory the classes of the tests are loaded from, i.e. benchmarks.jar when run from it
+	static Path testClasses()
+	{
+		try
+		{
+			return Path.of(BigInteger2.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+		}
+		catch(URISyntaxException ex)
+		{
+			throw new RuntimeException(ex);
+		}
+	}
+
+	// a parser like the one javaopc uses, but which leaves the tree as it is
+	static JavaParser parser(TypeSolver solver)
+	{
+		var config = new ParserConfiguration().setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_12)
+		                                      .setSymbolResolver(new JavaSymbolSolver(solver));
+
+		return new JavaParser(config);
+	}
+
+	// the ways javaopc is set up to resolve types, all of which find the classes of the tests:
+	// 'reflection' loads every type, 'platform' is what the tests use, 'jar' reads the classes of the tests
+	// with JavaParser's jar solver, and 'classpath' is what the command line uses
+	static TypeSolver solver(String name)
+	{
+		switch(name)
+		{
+		case "reflection":
+			return new ReflectionTypeSolver(false);
+
+		case "platform":
+			return new CombinedTypeSolver(new PlatformTypeSolver(), new ReflectionTypeSolver(false));
+
+		case "jar":
+			try
+			{
+				return new CombinedTypeSolver(new PlatformTypeSolver(), new JarTypeSolver(testClasses()));
+			}
+			catch(IOException ex)
+			{
+				throw new UncheckedIOException(ex);
+			}
+
+		case "classpath":
+			return new ClassPathTypeSolver(new ClassPathIndex(testClasses().toString(), null, null), new DependencyRecorder());
+
+		default: throw new IllegalArgumentException("unknown solver: " + name);
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package dev.mgrech.javaopc;
+
+import com.github.javaparser.Providers;
+import com.github.javaparser.ast.expr.BinaryExpr;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.resolution.types.ResolvedType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Lookup.resolveOverloadedOperator for the binary operators of a file whose operands are known without rewriting,
+// i.e. all but nested ones, resolved from scratch every time
+// implicitConversionsInBinaryOperator only compares and has no such operators
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark
+{
+	private static final EnumSet<BinaryExpr.Operator> ARITHMETIC = EnumSet.of(BinaryExpr.Operator.PLUS, BinaryExpr.Operator.MINUS,
+	                                                                          BinaryExpr.Operator.MULTIPLY, BinaryExpr.Operator.DIVIDE,
+	                                                                          BinaryExpr.Operator.REMAINDER);
+
+	private static class Site
+	{
+		final BinaryExpr expr;
+		final String methodName;
+		final List<ResolvedType> argTypes;
+
+		Site(BinaryExpr expr, List<ResolvedType> argTypes)
+		{
+			this.expr = expr;
+			this.methodName = Operators.mapToMethodName(expr.getOperator());
+			this.argTypes = argTypes;
+		}
+	}
+
+	@Param({"lookupFindsOverloadsFromImports", "disambiguation", "nestedOverloadedOperatorUsageCompiles", "synthetic-statements",
+	        "synthetic-imports", "synthetic-conversions", "synthetic-nesting"})
+	public String fixture;
+
+	private final List<Site> sites = new ArrayList<>();
+
+	@Setup
+	public void setUp()
+	{
+		var solver = Fixtures.solver("platform");
+		var cu = JavaOperatorCompiler.parse(Fixtures.parser(solver), Providers.provider(Fixtures.source(fixture)));
+		cu.setData(Lookup.TYPE_SOLVER, solver);
+
+		for(var expr : cu.findAll(BinaryExpr.class, e -> ARITHMETIC.contains(e.getOperator())))
+		{
+			var leftType = Attribution.typeOfOrNull(expr.getLeft());
+			var rightType = Attribution.typeOfOrNull(expr.getRight());
+
+			if(leftType == null || rightType == null || Types.isBuiltinType(leftType) && Types.isBuiltinType(rightType))
+				continue;
+
+			if(Types.isJavaLangString(leftType) || Types.isJavaLangString(rightType))
+				continue;
+
+			sites.add(new Site(expr, List.of(leftType, rightType)));
+		}
+	}
+
+	@Benchmark
+	public void resolve(Blackhole blackhole)
+	{
+		for(var site : sites)
+		{
+			// the invocation takes over its arguments, so it gets copies to leave the tree intact
+			List<Expression> args = List.of(site.expr.getLeft().clone(), site.expr.getRight().clone());
+			blackhole.consume(Lookup.resolveOverloadedOperator(site.expr, site.methodName, args, site.argTypes, true, true));
+		}
+	}
+}
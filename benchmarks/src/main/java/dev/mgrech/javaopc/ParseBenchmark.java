@@ -0,0 +1,62 @@
+package dev.mgrech.javaopc;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.Providers;
+import com.github.javaparser.ast.CompilationUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// JavaOperatorCompiler.parse, i.e. parsing and rewriting a file, with each way of resolving types,
+// and parsing alone, which is what rewriting adds to
+// JavaParser's jar solver, which javaopc does not use, gets the overloads of several fixtures wrong and is left out
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark
+{
+	@Param({"lookupFindsOverloadsFromImports", "disambiguation", "implicitConversionsInBinaryOperator", "nestedOverloadedOperatorUsageCompiles",
+	        "synthetic-statements", "synthetic-imports", "synthetic-conversions", "synthetic-nesting"})
+	public String fixture;
+
+	@Param({"reflection", "platform", "classpath"})
+	public String solver;
+
+	private String source;
+	private JavaParser parser;
+	private JavaParser rewritingParser;
+
+	@Setup
+	public void setUp()
+	{
+		var typeSolver = Fixtures.solver(solver);
+		source = Fixtures.source(fixture);
+		parser = Fixtures.parser(typeSolver);
+		rewritingParser = JavaOperatorCompiler.createParser(typeSolver, new JavaOperatorCompilerPostProcessor(typeSolver, null, null));
+	}
+
+	@Benchmark
+	public CompilationUnit parse()
+	{
+		return JavaOperatorCompiler.parse(parser, Providers.provider(source));
+	}
+
+	@Benchmark
+	public CompilationUnit parseAndRewrite()
+	{
+		return JavaOperatorCompiler.parse(rewritingParser, Providers.provider(source));
+	}
+}
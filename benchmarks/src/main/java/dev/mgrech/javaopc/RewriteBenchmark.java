@@ -0,0 +1,73 @@
+package dev.mgrech.javaopc;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.Providers;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// rewriting a parsed tree with OperatorVisitor, without the parsing, with resolutions either computed for every
+// occurrence or shared with previous rewrites of the same file, as they are between the files of a build
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RewriteBenchmark
+{
+	@Param({"lookupFindsOverloadsFromImports", "disambiguation", "implicitConversionsInBinaryOperator", "nestedOverloadedOperatorUsageCompiles",
+	        "synthetic-statements", "synthetic-imports", "synthetic-conversions", "synthetic-nesting"})
+	public String fixture;
+
+	@Param({"none", "shared"})
+	public String resolutions;
+
+	private String source;
+	private TypeSolver solver;
+	private JavaParser parser;
+	private ResolutionCache cache;
+
+	private CompilationUnit cu;
+
+	@Setup
+	public void setUp()
+	{
+		source = Fixtures.source(fixture);
+		solver = Fixtures.solver("platform");
+		parser = Fixtures.parser(solver);
+		cache = new ResolutionCache();
+	}
+
+	// rewriting changes the tree, so every rewrite gets a tree of its own
+	@Setup(Level.Invocation)
+	public void parse()
+	{
+		cu = JavaOperatorCompiler.parse(parser, Providers.provider(source));
+		cu.setData(Lookup.TYPE_SOLVER, solver);
+
+		if(resolutions.equals("shared"))
+			cu.setData(Lookup.RESOLUTION_CACHE, cache);
+	}
+
+	@Benchmark
+	public CompilationUnit rewrite()
+	{
+		cu.accept(new OperatorDefinitionCheckingVisitor(), null);
+		cu.accept(new ExprRewritingVisitorAdapter(new OperatorVisitor()), null);
+		return cu;
+	}
+}
@@ -0,0 +1,246 @@
+package dev.mgrech.javaopc;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// rewrites generated corpora that grow in one parameter at a time, everything else staying at the base shape, and reports
+// how the time, the peak heap and the type lookups of a rewrite grow with each parameter in a CSV and an HTML file
+// e.g. 'java -cp target/benchmarks.jar dev.mgrech.javaopc.Scaling --sweep depth=1,2,4,8,16,32 --set files=1'
+// every point rewrites its corpus with a new session, as a build would, the corpora are kept in the output directory
+public class Scaling
+{
+	// one corpus and what rewriting it took, the time is the median of the runs, the others are the same for every run
+	static class Point
+	{
+		final String parameter;
+		final int value;
+		final Corpus.Shape shape;
+		final int operators;
+		final long bytes;
+
+		long nanos = 0;
+		long peakHeap = 0;
+		long lookups = 0;
+		long misses = 0;
+		String error = null;
+
+		Point(String parameter, int value, Corpus.Shape shape, Corpus.Generated corpus)
+		{
+			this.parameter = parameter;
+			this.value = value;
+			this.shape = shape;
+			this.operators = corpus.operators;
+			this.bytes = corpus.bytes;
+		}
+	}
+
+	static class Options
+	{
+		Path outputDirectory = Paths.get("target", "scaling");
+		int runs = 3;
+		long maxSeconds = 60;
+		long seed = 1;
+		Corpus.Shape base = new Corpus.Shape(4, 40, 3, 2, 20, 2, Corpus.Operator.parseMix("+,-,*,/,neg,<,(),[]"));
+
+		// the values of each parameter to scale, in order
+		final Map<String, List<Integer>> sweeps = new LinkedHashMap<>();
+	}
+
+	private static final Map<String, List<Integer>> DEFAULT_SWEEPS = new LinkedHashMap<>();
+
+	static
+	{
+		DEFAULT_SWEEPS.put("files", List.of(1, 2, 4, 8, 16, 32));
+		DEFAULT_SWEEPS.put("statements", List.of(10, 20, 40, 80, 160, 320));
+		DEFAULT_SWEEPS.put("depth", List.of(1, 2, 4, 8, 16, 32));
+		DEFAULT_SWEEPS.put("arity", List.of(1, 2, 3, 4, 5, 6));
+		DEFAULT_SWEEPS.put("conversions", List.of(0, 20, 40, 60, 80, 100));
+		DEFAULT_SWEEPS.put("imports", List.of(0, 4, 8, 16, 32, 64));
+	}
+
+	private static List<Integer> parseValues(String values)
+	{
+		return Arrays.stream(values.split(",")).map(String::trim).map(Integer::parseInt).collect(Collectors.toList());
+	}
+
+	private static String[] parseAssignment(String arg)
+	{
+		var parts = arg.split("=", 2);
+
+		if(parts.length != 2 || !Corpus.Shape.PARAMETERS.contains(parts[0]))
+			throw new IllegalArgumentException("expected <parameter>=<value>, with a parameter of " + Corpus.Shape.PARAMETERS + ": " + arg);
+
+		return parts;
+	}
+
+	static Options parseOptions(List<String> args)
+	{
+		var options = new Options();
+
+		for(var i = 0; i != args.size(); ++i)
+		{
+			var arg = args.get(i);
+
+			if(i == args.size() - 1)
+				throw new IllegalArgumentException("missing value of " + arg);
+
+			var value = args.get(++i);
+
+			switch(arg)
+			{
+			case "--out":
+				options.outputDirectory = Paths.get(value);
+				break;
+
+			case "--runs":
+				options.runs = Integer.parseInt(value);
+				break;
+
+			case "--max-seconds":
+				options.maxSeconds = Long.parseLong(value);
+				break;
+
+			case "--seed":
+				options.seed = Long.parseLong(value);
+				break;
+
+			case "--mix":
+				options.base = options.base.withMix(Corpus.Operator.parseMix(value));
+				break;
+
+			case "--set":
+				var assignment = parseAssignment(value);
+				options.base = options.base.with(assignment[0], Integer.parseInt(assignment[1]));
+				break;
+
+			case "--sweep":
+				var sweep = parseAssignment(value);
+				options.sweeps.put(sweep[0], parseValues(sweep[1]));
+				break;
+
+			default:
+				throw new IllegalArgumentException("unknown option: " + arg);
+			}
+		}
+
+		if(options.runs < 1)
+			throw new IllegalArgumentException("invalid number of runs: " + options.runs);
+
+		if(options.sweeps.isEmpty())
+			options.sweeps.putAll(DEFAULT_SWEEPS);
+
+		return options;
+	}
+
+	private static List<MemoryPoolMXBean> heapPools()
+	{
+		return ManagementFactory.getMemoryPoolMXBeans()
+		                        .stream()
+		                        .filter(pool -> pool.getType() == MemoryType.HEAP)
+		                        .collect(Collectors.toList());
+	}
+
+	// rewrites all programs of a corpus with a new session, and returns the time it took
+	private static long rewrite(Corpus.Generated corpus, Point point)
+	{
+		var solver = new CountingTypeSolver(new ClassPathTypeSolver(new ClassPathIndex(corpus.root.toString(), null, null),
+		                                                            new DependencyRecorder()));
+		var session = new JavaopcSession(solver);
+		var start = System.nanoTime();
+
+		for(var program : corpus.programs)
+			session.rewrite(program);
+
+		var nanos = System.nanoTime() - start;
+
+		if(point != null)
+		{
+			point.lookups = solver.lookups();
+			point.misses = solver.misses();
+		}
+
+		return nanos;
+	}
+
+	private static void measure(Corpus.Generated corpus, Point point, int runs)
+	{
+		var pools = heapPools();
+		var times = new ArrayList<Long>();
+
+		for(var run = 0; run != runs; ++run)
+		{
+			System.gc();
+			pools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+			times.add(rewrite(corpus, point));
+
+			var peak = pools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+			point.peakHeap = Math.max(point.peakHeap, peak);
+		}
+
+		times.sort(null);
+		point.nanos = times.get(times.size() / 2);
+	}
+
+	public static void main(String[] args)
+	{
+		var options = parseOptions(List.of(args));
+		var corpora = options.outputDirectory.resolve("corpus");
+
+		// the first rewrites load and compile javaopc and JavaParser, they would distort the smallest corpora
+		System.err.println("warming up with " + options.base);
+		var warmup = Corpus.generate(options.base, corpora.resolve("base"), options.seed);
+
+		for(var run = 0; run != options.runs; ++run)
+			rewrite(warmup, null);
+
+		var points = new ArrayList<Point>();
+
+		for(var sweep : options.sweeps.entrySet())
+		{
+			var parameter = sweep.getKey();
+			var exceeded = false;
+
+			for(var value : sweep.getValue())
+			{
+				var shape = options.base.with(parameter, value);
+				var corpus = Corpus.generate(shape, corpora.resolve(parameter + "-" + value), options.seed);
+				var point = new Point(parameter, value, shape, corpus);
+				points.add(point);
+
+				// past a cliff, larger values take even longer and tell nothing new
+				if(exceeded)
+				{
+					point.error = "skipped, a smaller value took longer than " + options.maxSeconds + "s";
+					continue;
+				}
+
+				System.err.printf("%s=%d: %s%n", parameter, value, shape);
+
+				try
+				{
+					measure(corpus, point, options.runs);
+					exceeded = point.nanos > TimeUnit.SECONDS.toNanos(options.maxSeconds);
+				}
+				catch(RuntimeException ex)
+				{
+					point.error = String.valueOf(ex.getMessage()).lines().findFirst().orElse(ex.getClass().getName());
+				}
+			}
+		}
+
+		ScalingReport.write(points, options.base, options.outputDirectory);
+		System.err.println("wrote " + options.outputDirectory.resolve(ScalingReport.CSV) + " and "
+		                   + options.outputDirectory.resolve(ScalingReport.HTML));
+	}
+}
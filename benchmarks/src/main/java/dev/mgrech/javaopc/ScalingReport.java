@@ -0,0 +1,233 @@
+package dev.mgrech.javaopc;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+
+// writes the points of a scaling run as CSV, one row per point, and as an HTML page with a chart and a table per parameter
+// for every point but the first of a parameter, the growth is the exponent k of time ~ value^k between it and the point
+// before, i.e. 1 for linear growth, and above 1 where the time grows faster than the parameter
+class ScalingReport
+{
+	static final String CSV = "scaling.csv";
+	static final String HTML = "scaling.html";
+
+	// points growing faster than this are highlighted
+	private static final double SUPER_LINEAR = 1.25;
+
+	private static final List<String> METRICS = List.of("time (ms)", "peak heap (MiB)", "type lookups");
+
+	private static double millis(Scaling.Point point)
+	{
+		return point.nanos / 1e6;
+	}
+
+	private static double mebibytes(Scaling.Point point)
+	{
+		return point.peakHeap / (1024.0 * 1024.0);
+	}
+
+	private static List<ToDoubleFunction<Scaling.Point>> metrics()
+	{
+		return List.of(ScalingReport::millis, ScalingReport::mebibytes, point -> point.lookups);
+	}
+
+	// NaN where there is nothing to compare to, or the parameter does not grow between the points
+	private static double growth(Scaling.Point previous, Scaling.Point point)
+	{
+		if(previous == null || previous.error != null || point.error != null)
+			return Double.NaN;
+
+		if(previous.value <= 0 || point.value <= previous.value || previous.nanos <= 0)
+			return Double.NaN;
+
+		return Math.log((double)point.nanos / previous.nanos) / Math.log((double)point.value / previous.value);
+	}
+
+	private static Map<String, List<Scaling.Point>> byParameter(List<Scaling.Point> points)
+	{
+		var result = new LinkedHashMap<String, List<Scaling.Point>>();
+
+		for(var point : points)
+			result.computeIfAbsent(point.parameter, p -> new ArrayList<>()).add(point);
+
+		return result;
+	}
+
+	private static String format(double value)
+	{
+		return Double.isNaN(value) ? "" : String.format(Locale.ROOT, "%.2f", value);
+	}
+
+	private static String csvField(String value)
+	{
+		if(value == null)
+			return "";
+
+		return value.contains(",") || value.contains("\"") ? "\"" + value.replace("\"", "\"\"") + "\"" : value;
+	}
+
+	static String csv(List<Scaling.Point> points)
+	{
+		var csv = new StringBuilder("parameter,value,files,statements,depth,arity,conversions,imports,mix,operators,bytes,"
+		                            + "time_ms,peak_heap_mib,type_lookups,type_misses,growth,error\n");
+
+		for(var sweep : byParameter(points).values())
+		{
+			Scaling.Point previous = null;
+
+			for(var point : sweep)
+			{
+				var shape = point.shape;
+				var measured = point.error == null;
+
+				csv.append(String.join(",", point.parameter, Integer.toString(point.value), Integer.toString(shape.files),
+				                       Integer.toString(shape.statements), Integer.toString(shape.depth), Integer.toString(shape.arity),
+				                       Integer.toString(shape.conversions), Integer.toString(shape.imports),
+				                       csvField(Corpus.Operator.formatMix(shape.mix)), Integer.toString(point.operators),
+				                       Long.toString(point.bytes), measured ? format(millis(point)) : "",
+				                       measured ? format(mebibytes(point)) : "", measured ? Long.toString(point.lookups) : "",
+				                       measured ? Long.toString(point.misses) : "", format(growth(previous, point)),
+				                       csvField(point.error)));
+				csv.append('\n');
+				previous = point;
+			}
+		}
+
+		return csv.toString();
+	}
+
+	private static String escape(String text)
+	{
+		return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+	}
+
+	// a line chart of one metric over the values of a parameter, both axes linear and starting at zero
+	private static String chart(String title, List<Scaling.Point> sweep, ToDoubleFunction<Scaling.Point> metric)
+	{
+		final int width = 320, height = 200, left = 56, right = 12, top = 24, bottom = 32;
+
+		var measured = sweep.stream().filter(p -> p.error == null).collect(Collectors.toList());
+		var maxX = Math.max(1, sweep.stream().mapToInt(p -> p.value).max().orElse(1));
+		var maxY = measured.stream().mapToDouble(metric).max().orElse(0);
+
+		if(maxY <= 0)
+			maxY = 1;
+
+		var svg = new StringBuilder();
+		svg.append(String.format(Locale.ROOT, "<svg width=\"%d\" height=\"%d\" viewBox=\"0 0 %d %d\">", width, height, width, height));
+		svg.append(String.format(Locale.ROOT, "<text x=\"%d\" y=\"14\" class=\"title\">%s</text>", left, escape(title)));
+		svg.append(String.format(Locale.ROOT, "<line x1=\"%d\" y1=\"%d\" x2=\"%d\" y2=\"%d\" class=\"axis\"/>", left, height - bottom,
+		                         width - right, height - bottom));
+		svg.append(String.format(Locale.ROOT, "<line x1=\"%d\" y1=\"%d\" x2=\"%d\" y2=\"%d\" class=\"axis\"/>", left, top, left,
+		                         height - bottom));
+		svg.append(String.format(Locale.ROOT, "<text x=\"%d\" y=\"%d\" class=\"label\" text-anchor=\"end\">%s</text>", left - 4,
+		                         top + 4, format(maxY)));
+		svg.append(String.format(Locale.ROOT, "<text x=\"%d\" y=\"%d\" class=\"label\" text-anchor=\"end\">0</text>", left - 4,
+		                         height - bottom));
+
+		var line = new StringBuilder();
+
+		for(var point : measured)
+		{
+			var x = left + (double)point.value / maxX * (width - left - right);
+			var y = height - bottom - metric.applyAsDouble(point) / maxY * (height - top - bottom);
+			line.append(String.format(Locale.ROOT, "%.1f,%.1f ", x, y));
+			svg.append(String.format(Locale.ROOT, "<circle cx=\"%.1f\" cy=\"%.1f\" r=\"2.5\"/>", x, y));
+		}
+
+		for(var point : sweep)
+		{
+			var x = left + (double)point.value / maxX * (width - left - right);
+			svg.append(String.format(Locale.ROOT, "<text x=\"%.1f\" y=\"%d\" class=\"label\" text-anchor=\"middle\">%d</text>", x,
+			                         height - bottom + 14, point.value));
+		}
+
+		svg.append(String.format("<polyline points=\"%s\"/>", line.toString().trim()));
+		svg.append("</svg>");
+		return svg.toString();
+	}
+
+	static String html(List<Scaling.Point> points, Corpus.Shape base)
+	{
+		var html = new StringBuilder();
+		html.append("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"utf-8\">\n<title>javaopc scaling</title>\n<style>\n");
+		html.append("body { font-family: sans-serif; margin: 2em; }\n");
+		html.append("table { border-collapse: collapse; margin-top: 1em; }\n");
+		html.append("td, th { border: 1px solid #ccc; padding: 2px 8px; text-align: right; }\n");
+		html.append("td.error { text-align: left; color: #a00; }\n");
+		html.append("tr.super-linear td.growth { background: #fcc; font-weight: bold; }\n");
+		html.append("svg { margin-right: 1em; }\n");
+		html.append("svg polyline { fill: none; stroke: #36c; stroke-width: 2; }\n");
+		html.append("svg circle { fill: #36c; }\n");
+		html.append("svg .axis { stroke: #888; }\n");
+		html.append("svg .title { font-size: 12px; font-weight: bold; }\n");
+		html.append("svg .label { font-size: 10px; fill: #555; }\n");
+		html.append("</style>\n</head>\n<body>\n");
+		html.append("<h1>javaopc scaling</h1>\n");
+		html.append("<p>Every parameter is scaled on its own, the others stay at the base shape: <code>")
+		    .append(escape(base.toString())).append("</code></p>\n");
+		html.append(String.format(Locale.ROOT, "<p>The growth is the exponent k of time ~ value<sup>k</sup> from the point before, "
+		                                       + "growth above %.2f is highlighted.</p>\n", SUPER_LINEAR));
+
+		for(var sweep : byParameter(points).entrySet())
+		{
+			html.append("<h2>").append(escape(sweep.getKey())).append("</h2>\n<div>");
+
+			for(var i = 0; i != METRICS.size(); ++i)
+				html.append(chart(METRICS.get(i), sweep.getValue(), metrics().get(i)));
+
+			html.append("</div>\n<table>\n<tr><th>").append(escape(sweep.getKey()))
+			    .append("</th><th>operators</th><th>bytes</th><th>time (ms)</th><th>peak heap (MiB)</th>"
+			            + "<th>type lookups</th><th>misses</th><th>growth</th><th></th></tr>\n");
+
+			Scaling.Point previous = null;
+
+			for(var point : sweep.getValue())
+			{
+				var growth = growth(previous, point);
+				var measured = point.error == null;
+
+				html.append(growth > SUPER_LINEAR ? "<tr class=\"super-linear\">" : "<tr>");
+				html.append("<td>").append(point.value).append("</td>");
+				html.append("<td>").append(point.operators).append("</td>");
+				html.append("<td>").append(point.bytes).append("</td>");
+				html.append("<td>").append(measured ? format(millis(point)) : "").append("</td>");
+				html.append("<td>").append(measured ? format(mebibytes(point)) : "").append("</td>");
+				html.append("<td>").append(measured ? Long.toString(point.lookups) : "").append("</td>");
+				html.append("<td>").append(measured ? Long.toString(point.misses) : "").append("</td>");
+				html.append("<td class=\"growth\">").append(format(growth)).append("</td>");
+				html.append("<td class=\"error\">").append(measured ? "" : escape(point.error)).append("</td>");
+				html.append("</tr>\n");
+				previous = point;
+			}
+
+			html.append("</table>\n");
+		}
+
+		html.append("</body>\n</html>\n");
+		return html.toString();
+	}
+
+	static void write(List<Scaling.Point> points, Corpus.Shape base, Path directory)
+	{
+		try
+		{
+			Files.createDirectories(directory);
+			Files.writeString(directory.resolve(CSV), csv(points));
+			Files.writeString(directory.resolve(HTML), html(points, base));
+		}
+		catch(IOException ex)
+		{
+			throw new UncheckedIOException(ex);
+		}
+	}
+}
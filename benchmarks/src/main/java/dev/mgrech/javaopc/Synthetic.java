@@ -0,0 +1,99 @@
+package dev.mgrech.javaopc;
+
+import java.util.List;
+
+// programs larger than the tests, made of the operators of the classes the tests use
+class Synthetic
+{
+	// classes whose static members are imported on demand ahead of the operators
+	private static final List<String> IMPORTED_CLASSES = List.of("java.lang.Math", "java.util.Collections", "java.util.Arrays",
+	                                                             "java.util.Objects", "java.util.stream.Collectors",
+	                                                             "java.lang.Character", "java.lang.Integer", "java.lang.Long",
+	                                                             "java.lang.Double", "java.util.concurrent.TimeUnit",
+	                                                             "java.util.Map", "java.util.List");
+
+	private static String program(String imports, String body)
+	{
+		return imports + "\n"
+		     + "public class Program\n"
+		     + "{\n"
+		     + "\tpublic static void main(String[] args)\n"
+		     + "\t{\n"
+		     + body
+		     + "\t}\n"
+		     + "}\n";
+	}
+
+	// a long method of statements mixing the operators of a class and the overloads of its operators
+	static String statements(int count)
+	{
+		var body = new StringBuilder();
+		body.append("\t\tvar a = new BigInteger2(1);\n");
+		body.append("\t\tvar b = new BigInteger2(2);\n");
+		body.append("\t\tvar c0 = a + b;\n");
+
+		for(var i = 1; i != count; ++i)
+		{
+			body.append(String.format("\t\tvar c%d = c%d + a - -b;\n", i, i - 1));
+			body.append(String.format("\t\tc%d = c%d + %dL;\n", i, i, i));
+		}
+
+		body.append(String.format("\t\tSystem.out.println(c%d);\n", count - 1));
+		return program("import dev.mgrech.javaopc.test.BigInteger2;\n", body.toString());
+	}
+
+	// operators found through the last of many static imports on demand
+	static String staticImports(int count)
+	{
+		var imports = new StringBuilder("import java.math.BigInteger;\n\n");
+
+		for(var name : IMPORTED_CLASSES)
+			imports.append("import static ").append(name).append(".*;\n");
+
+		imports.append("import static dev.mgrech.javaopc.test.BigIntegerExtensions.*;\n");
+
+		var body = new StringBuilder();
+		body.append("\t\tvar a = BigInteger.valueOf(1);\n");
+		body.append("\t\tvar x0 = a + a;\n");
+
+		for(var i = 1; i != count; ++i)
+		{
+			body.append(String.format("\t\tvar x%d = x%d + a;\n", i, i - 1));
+			body.append(String.format("\t\tx%d++;\n", i));
+		}
+
+		body.append(String.format("\t\tSystem.out.println(x%d);\n", count - 1));
+		return program(imports.toString(), body.toString());
+	}
+
+	// operands that only match an operator after an implicit conversion
+	static String conversions(int count)
+	{
+		var body = new StringBuilder();
+		body.append("\t\tvar x = BigInteger.valueOf(1);\n");
+
+		for(var i = 0; i != count; ++i)
+		{
+			body.append(String.format("\t\tx = x + %dL;\n", i));
+			body.append(String.format("\t\tSystem.out.println(x >= %d);\n", i));
+		}
+
+		var imports = "import java.math.BigInteger;\n\nimport static dev.mgrech.javaopc.test.BigIntegerExtensions.*;\n";
+		return program(imports, body.toString());
+	}
+
+	// a single expression of deeply nested operators
+	static String nesting(int depth)
+	{
+		var expr = new StringBuilder("a");
+
+		for(var i = 0; i != depth; ++i)
+			expr.insert(0, i % 2 == 0 ? "b + (" : "a - (").append(')');
+
+		var body = "\t\tvar a = new BigInteger2(1);\n"
+		         + "\t\tvar b = new BigInteger2(2);\n"
+		         + "\t\tSystem.out.println(" + expr + ");\n";
+
+		return program("import dev.mgrech.javaopc.test.BigInteger2;\n", body);
+	}
+}
@@ -0,0 +1,65 @@
+package dev.mgrech.javaopc;
+
+import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// looking up the kinds of names the symbol solver asks for while rewriting: platform types, types of the class path,
+// nested types, and the many names that turn out not to be types, e.g. packages and variables
+// 'warm' asks a solver that has seen the names before, 'cold' creates the solver first, as a new worker does
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TypeSolverBenchmark
+{
+	private static final List<String> NAMES = List.of("java.lang.String", "java.lang.Object", "java.math.BigInteger", "java.util.List",
+	                                                  "java.util.Map.Entry", "java.util.function.Function",
+	                                                  "dev.mgrech.javaopc.test.BigInteger2", "dev.mgrech.javaopc.test.BigIntegerExtensions",
+	                                                  "java.util", "java.lang.System.out", "dev.mgrech.javaopc.test.Missing", "Program", "a");
+
+	@Param({"reflection", "platform", "jar", "classpath"})
+	public String solver;
+
+	private TypeSolver warmSolver;
+
+	@Setup
+	public void setUp()
+	{
+		warmSolver = Fixtures.solver(solver);
+		NAMES.forEach(warmSolver::tryToSolveType);
+	}
+
+	private static void solveAll(TypeSolver solver, Blackhole blackhole)
+	{
+		for(var name : NAMES)
+			blackhole.consume(solver.tryToSolveType(name));
+	}
+
+	@Benchmark
+	public void warm(Blackhole blackhole)
+	{
+		solveAll(warmSolver, blackhole);
+	}
+
+	@Benchmark
+	public void cold(Blackhole blackhole)
+	{
+		solveAll(Fixtures.solver(solver), blackhole);
+	}
+}
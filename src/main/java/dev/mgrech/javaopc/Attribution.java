@@ -0,0 +1,61 @@
+package dev.mgrech.javaopc;
+
+import com.github.javaparser.ast.DataKey;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.resolution.types.ResolvedType;
+
+// the types of expressions, stored on the nodes themselves
+// the rewriting adapter visits children before their parents, so asking for the types of the operands of the node
+// being visited attributes the tree bottom-up and every expression is handed to the symbol solver at most once
+public class Attribution
+{
+	private static final DataKey<ResolvedType> TYPE = new DataKey<>() {};
+
+	public static boolean isAttributed(Expression expr)
+	{
+		return expr.containsData(TYPE);
+	}
+
+	public static ResolvedType typeOf(Expression expr)
+	{
+		if(expr.containsData(TYPE))
+			return expr.getData(TYPE);
+
+		FileMetrics.count(expr, FileMetrics.Counter.TYPE_RESOLUTIONS);
+		ResolvedType type;
+
+		try
+		{
+			type = expr.calculateResolvedType();
+		}
+		catch(RuntimeException ex)
+		{
+			FileMetrics.count(expr, FileMetrics.Counter.FAILED_RESOLUTIONS);
+			throw ex;
+		}
+
+		expr.setData(TYPE, type);
+		return type;
+	}
+
+	public static ResolvedType typeOfOrNull(Expression expr)
+	{
+		try
+		{
+			return typeOf(expr);
+		}
+		catch(RuntimeException ex)
+		{
+			return null;
+		}
+	}
+
+	// the type of an expression depends on its subtree, so replacing a node invalidates its ancestors
+	// the replacement itself is a new node and is attributed when it is asked for
+	public static void invalidate(Node replacement)
+	{
+		for(var node = replacement.getParentNode().orElse(null); node != null; node = node.getParentNode().orElse(null))
+			node.removeData(TYPE);
+	}
+}
@@ -0,0 +1,105 @@
+package dev.mgrech.javaopc;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// the packages of every class path entry, so that a type is only looked up in the entries that contain its package
+// built once per class path and shared by the solvers of all workers, together with the names no entry declares
+class ClassPathIndex
+{
+	private final List<Path> entries;
+
+	// the indices of the source roots among the entries, null for jars
+	private final List<SourceIndex> sourceIndices;
+
+	// the indices of the jars among the entries, null for source roots
+	private final List<JarIndex> jarIndices;
+
+	// the indices of the entries containing each package, in class path order
+	private final Map<String, List<Integer>> packages = new HashMap<>();
+
+	private final Set<String> missing = ConcurrentHashMap.newKeySet();
+
+	private final Platform platform;
+
+	// the indices of source roots are stored in the given directory, if it isn't null
+	// the platform is that of the given release, or that of the running JDK if it is null
+	ClassPathIndex(String classPath, String release, Path indexDirectory)
+	{
+		platform = Platform.of(release);
+		entries = classPath == null ? List.of(Path.of(".")) : Main.classPathEntries(classPath);
+
+		sourceIndices = entries.parallelStream()
+		                       .map(e -> isJar(e) ? null : SourceIndex.of(e, indexDirectory))
+		                       .collect(Collectors.toList());
+
+		// listing large jars dominates startup, so jars are indexed in parallel
+		jarIndices = entries.parallelStream()
+		                    .map(e -> isJar(e) ? JarIndex.of(e) : null)
+		                    .collect(Collectors.toList());
+
+		var entryPackages = IntStream.range(0, entries.size())
+		                             .mapToObj(i -> isJar(entries.get(i)) ? jarIndices.get(i).packages() : sourceIndices.get(i).packages())
+		                             .collect(Collectors.toList());
+
+		for(var i = 0; i != entries.size(); ++i)
+		{
+			for(var name : entryPackages.get(i))
+				packages.computeIfAbsent(name, n -> new ArrayList<>()).add(i);
+		}
+	}
+
+	static boolean isJar(Path entry)
+	{
+		return entry.toString().endsWith(".jar");
+	}
+
+	List<Path> entries()
+	{
+		return entries;
+	}
+
+	SourceIndex sourceIndex(int entry)
+	{
+		return sourceIndices.get(entry);
+	}
+
+	Platform platform()
+	{
+		return platform;
+	}
+
+	JarIndex jarIndex(int entry)
+	{
+		return jarIndices.get(entry);
+	}
+
+	// the entries that may declare a type of the given name, which may denote a nested type
+	// the package of such a name is any of its prefixes, all of them are considered
+	List<Integer> candidates(String name)
+	{
+		var candidates = new ArrayList<Integer>(packages.getOrDefault("", List.of()));
+
+		for(var dot = name.indexOf('.'); dot != -1; dot = name.indexOf('.', dot + 1))
+			candidates.addAll(packages.getOrDefault(name.substring(0, dot), List.of()));
+
+		return candidates.stream().distinct().sorted().collect(Collectors.toList());
+	}
+
+	boolean isMissing(String name)
+	{
+		return missing.contains(name);
+	}
+
+	void markMissing(String name)
+	{
+		missing.add(name);
+	}
+}
@@ -0,0 +1,105 @@
+package dev.mgrech.javaopc;
+
+import com.github.javaparser.resolution.UnsolvedSymbolException;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.symbolsolver.model.resolution.SymbolReference;
+import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// resolves types from the platform and then from the class path entries in order, like a chain of CombinedTypeSolvers would,
+// but asks only the entries the index finds the package of a name in, so a lookup does not walk the whole class path
+public class ClassPathTypeSolver implements TypeSolver
+{
+	private final ClassPathIndex index;
+	private final TypeSolver jdkSolver;
+	private final List<TypeSolver> entrySolvers = new ArrayList<>();
+
+	// every solver making up this one, including the wrapped ones
+	private final List<TypeSolver> solvers = new ArrayList<>();
+
+	private TypeSolver parent = null;
+
+	ClassPathTypeSolver(ClassPathIndex index, DependencyRecorder dependencies)
+	{
+		this.index = index;
+
+		jdkSolver = new PlatformTypeSolver(index.platform());
+		jdkSolver.setParent(this);
+		solvers.add(jdkSolver);
+
+		for(var i = 0; i != index.entries().size(); ++i)
+		{
+			var entry = index.entries().get(i);
+			TypeSolver solver;
+
+			if(ClassPathIndex.isJar(entry))
+				solvers.add(solver = new LazyJarTypeSolver(index.jarIndex(i), index.platform()));
+			else
+			{
+				// jars are covered by the fingerprint of the rewrite cache, but sources in a source root
+				// may change between builds, so the files that types are resolved from need to be tracked
+				var sourceSolver = new SourceIndexTypeSolver(index.sourceIndex(i));
+				solvers.add(sourceSolver);
+				solvers.add(solver = new DependencyRecordingTypeSolver(sourceSolver, dependencies));
+			}
+
+			solver.setParent(this);
+			entrySolvers.add(solver);
+		}
+
+		solvers.add(this);
+	}
+
+	List<TypeSolver> solvers()
+	{
+		return solvers;
+	}
+
+	@Override
+	public TypeSolver getParent()
+	{
+		return parent;
+	}
+
+	@Override
+	public void setParent(TypeSolver parent)
+	{
+		this.parent = parent;
+	}
+
+	@Override
+	public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name)
+	{
+		if(index.isMissing(name))
+			return SymbolReference.unsolved(ResolvedReferenceTypeDeclaration.class);
+
+		var ref = jdkSolver.tryToSolveType(name);
+
+		if(ref.isSolved())
+			return ref;
+
+		for(var entry : index.candidates(name))
+		{
+			ref = entrySolvers.get(entry).tryToSolveType(name);
+
+			if(ref.isSolved())
+				return ref;
+		}
+
+		index.markMissing(name);
+		return ref;
+	}
+
+	@Override
+	public ResolvedReferenceTypeDeclaration solveType(String name) throws UnsolvedSymbolException
+	{
+		var ref = tryToSolveType(name);
+
+		if(!ref.isSolved())
+			throw new UnsolvedSymbolException(name);
+
+		return ref.getCorrespondingDeclaration();
+	}
+}
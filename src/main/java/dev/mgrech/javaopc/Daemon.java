@@ -0,0 +1,298 @@
+package dev.mgrech.javaopc;
+
+import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+// keeps workers with warm solvers for every class path it has seen and compiles on behalf of DaemonClient
+public class Daemon
+{
+	private static class Pool
+	{
+		final String fingerprint;
+		final ClassPathIndex index;
+		final Deque<Worker> idle = new ArrayDeque<>();
+
+		Pool(String fingerprint, ClassPathIndex index)
+		{
+			this.fingerprint = fingerprint;
+			this.index = index;
+		}
+	}
+
+	private static class Lease
+	{
+		final Pool pool;
+		final List<Worker> workers;
+
+		Lease(Pool pool, List<Worker> workers)
+		{
+			this.pool = pool;
+			this.workers = workers;
+		}
+	}
+
+	private final Path socket;
+	private final Map<String, Pool> pools = new HashMap<>();
+
+	// compilations hold the read lock, while creating or discarding workers requires the write lock,
+	// because both modify the unsynchronized solver registry of JavaParserFacade
+	private final ReentrantReadWriteLock registryLock = new ReentrantReadWriteLock();
+
+	public Daemon(Path socket)
+	{
+		this.socket = socket;
+	}
+
+	static void writeString(DataOutputStream out, String s) throws IOException
+	{
+		var bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	static String readString(DataInputStream in) throws IOException
+	{
+		var bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static String fileFingerprint(Path file)
+	{
+		try
+		{
+			return file + ":" + Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis();
+		}
+		catch(IOException ex)
+		{
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	// the solvers keep parsed sources and loaded classes alive, so any change to a jar or to a source file
+	// in a source root of the class path means that the workers for that class path have to be discarded
+	// source roots are revalidated by their index, which only stats the files it knows unless files were added or removed
+	private static String pathFingerprint(Path path, Path indexDirectory)
+	{
+		if(!Files.isDirectory(path))
+			return Files.exists(path) ? fileFingerprint(path) : path + ":missing";
+
+		return path + ":" + SourceIndex.of(path, indexDirectory).generation();
+	}
+
+	private static String classPathFingerprint(String classPath, Path indexDirectory)
+	{
+		return Main.classPathEntries(classPath)
+		           .stream()
+		           .map(p -> pathFingerprint(p.toAbsolutePath(), indexDirectory))
+		           .collect(Collectors.joining(";"));
+	}
+
+	private Lease take(Pool pool, int count)
+	{
+		var workers = new ArrayList<Worker>();
+
+		while(workers.size() != count)
+			workers.add(pool.idle.remove());
+
+		return new Lease(pool, workers);
+	}
+
+	// on success, the caller holds the read lock until the lease is released
+	private Lease acquire(String classPath, String release, Path indexDirectory, int count)
+	{
+		// the same class path compiled for another release needs solvers of its own
+		var key = release == null ? classPath : classPath + "\0" + release;
+		var fingerprint = classPathFingerprint(classPath, indexDirectory);
+		registryLock.readLock().lock();
+
+		synchronized(pools)
+		{
+			var pool = pools.get(key);
+
+			if(pool != null && pool.fingerprint.equals(fingerprint) && pool.idle.size() >= count)
+				return take(pool, count);
+		}
+
+		registryLock.readLock().unlock();
+		registryLock.writeLock().lock();
+
+		try
+		{
+			synchronized(pools)
+			{
+				var pool = pools.get(key);
+
+				if(pool == null || !pool.fingerprint.equals(fingerprint))
+				{
+					var discarded = pools.put(key, pool = new Pool(fingerprint, new ClassPathIndex(classPath, release, indexDirectory)));
+
+					// no compilation is running, so the registry can be rebuilt without the discarded solvers
+					if(discarded != null)
+					{
+						JavaParserFacade.clearInstances();
+
+						for(var remaining : pools.values())
+							remaining.idle.forEach(Worker::register);
+					}
+				}
+
+				while(pool.idle.size() < count)
+				{
+					var worker = new Worker(pool.index);
+					worker.register();
+					pool.idle.add(worker);
+				}
+
+				var lease = take(pool, count);
+
+				// downgrade to the read lock for the duration of the compilation
+				registryLock.readLock().lock();
+				return lease;
+			}
+		}
+		finally
+		{
+			registryLock.writeLock().unlock();
+		}
+	}
+
+	private void release(Lease lease)
+	{
+		synchronized(pools)
+		{
+			lease.pool.idle.addAll(lease.workers);
+		}
+
+		registryLock.readLock().unlock();
+	}
+
+	private boolean compile(List<String> args, PrintWriter out)
+	{
+		var options = Main.parseOptions(args);
+		var lease = acquire(options.solverClassPath(), options.release, Main.indexDirectory(options), options.jobs);
+
+		try
+		{
+			return Main.run(options, lease.workers, out);
+		}
+		finally
+		{
+			release(lease);
+		}
+	}
+
+	private void handle(SocketChannel channel)
+	{
+		try(channel;
+		    var in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+		    var out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel))))
+		{
+			var args = new ArrayList<String>();
+			var count = in.readInt();
+
+			for(var i = 0; i != count; ++i)
+				args.add(readString(in));
+
+			var output = new StringWriter();
+			var success = false;
+
+			try(var writer = new PrintWriter(output))
+			{
+				try
+				{
+					success = compile(args, writer);
+				}
+				// e.g. a stack overflow on deeply nested expressions, which fails the request but not the daemon
+				catch(RuntimeException | Error ex)
+				{
+					ex.printStackTrace(writer);
+				}
+			}
+
+			writeString(out, output.toString());
+			out.writeInt(success ? 0 : 1);
+		}
+		catch(IOException ex)
+		{
+			System.err.println("javaopc daemon: failed to serve request: " + ex);
+		}
+	}
+
+	// anyone who can connect to the socket can have the daemon read and write files on their behalf, so only its owner may
+	// the socket is created in a directory only the owner can enter, restricted and only then moved to where clients expect it,
+	// so there is no moment in which others could connect
+	private void bind(ServerSocketChannel server) throws IOException
+	{
+		var parent = socket.toAbsolutePath().getParent();
+
+		if(!parent.getFileSystem().supportedFileAttributeViews().contains("posix"))
+		{
+			server.bind(UnixDomainSocketAddress.of(socket));
+			return;
+		}
+
+		var ownerOnly = PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------"));
+		var directory = Files.createTempDirectory(parent, ".javaopc-daemon", ownerOnly);
+		var bound = directory.resolve("socket");
+
+		try
+		{
+			server.bind(UnixDomainSocketAddress.of(bound));
+			Files.setPosixFilePermissions(bound, PosixFilePermissions.fromString("rw-------"));
+			Files.move(bound, socket, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally
+		{
+			Files.deleteIfExists(bound);
+			Files.delete(directory);
+		}
+	}
+
+	public void run() throws IOException
+	{
+		Files.deleteIfExists(socket);
+
+		try(var server = ServerSocketChannel.open(StandardProtocolFamily.UNIX))
+		{
+			bind(server);
+			socket.toFile().deleteOnExit();
+
+			// one thread per request, requests mostly wait for javac and the workers anyway
+			var executor = Executors.newCachedThreadPool();
+
+			while(true)
+			{
+				var channel = server.accept();
+				executor.submit(() -> handle(channel));
+			}
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package dev.mgrech.javaopc;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+public class DaemonClient
+{
+	private static final Set<String> PATH_OPTIONS = Set.of(
+		"-cp", "-classpath", "--class-path",
+		"-sourcepath", "--source-path",
+		"-processorpath", "--processor-path",
+		"-p", "--module-path", "--module-source-path", "--upgrade-module-path",
+		"-bootclasspath", "--boot-class-path", "--system",
+		"-d", "-s", "-h",
+		"--rewrite-cache", "--emit-sources", "--stats");
+
+	private static final Set<String> CLASS_PATH_OPTIONS = Set.of("-cp", "-classpath", "--class-path");
+
+	private static String absolutePathList(String value, Path cwd)
+	{
+		var result = new StringBuilder();
+		var start = 0;
+
+		for(var i = 0; i <= value.length(); ++i)
+		{
+			if(i != value.length() && value.charAt(i) != ';' && value.charAt(i) != File.pathSeparatorChar)
+				continue;
+
+			result.append(cwd.resolve(value.substring(start, i)));
+
+			if(i != value.length())
+				result.append(value.charAt(i));
+
+			start = i + 1;
+		}
+
+		return result.toString();
+	}
+
+	// the daemon runs in a different working directory, so all paths are made absolute before sending them
+	private static List<String> absolutePaths(List<String> args, Path cwd)
+	{
+		var result = new ArrayList<String>();
+		var hasClassPath = false;
+
+		for(var i = 0; i != args.size(); ++i)
+		{
+			var arg = args.get(i);
+
+			if(PATH_OPTIONS.contains(arg) && i != args.size() - 1)
+			{
+				hasClassPath |= CLASS_PATH_OPTIONS.contains(arg);
+				result.add(arg);
+				result.add(absolutePathList(args.get(++i), cwd));
+			}
+			else if(arg.endsWith(".java"))
+				result.add(cwd.resolve(arg).toString());
+			else if(arg.startsWith("@"))
+				result.add("@" + cwd.resolve(arg.substring(1)));
+			else
+				result.add(arg);
+		}
+
+		// both javac and javaopc default to the working directory if no class path is given
+		if(!hasClassPath)
+		{
+			result.add("-cp");
+			result.add(cwd.toString());
+		}
+
+		return result;
+	}
+
+	public static Integer run(Path socket, List<String> args) throws IOException
+	{
+		return run(socket, args, null);
+	}
+
+	// returns the exit code of the compilation, or null if no daemon is listening on the socket
+	// the diagnostics of the daemon are written to 'writer', or to System.err if it is null
+	public static Integer run(Path socket, List<String> args, Writer writer) throws IOException
+	{
+		SocketChannel channel;
+
+		try
+		{
+			channel = SocketChannel.open(UnixDomainSocketAddress.of(socket));
+		}
+		catch(IOException ex)
+		{
+			return null;
+		}
+
+		try(channel;
+		    var in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+		    var out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel))))
+		{
+			var absoluteArgs = absolutePaths(args, Paths.get("").toAbsolutePath());
+			out.writeInt(absoluteArgs.size());
+
+			for(var arg : absoluteArgs)
+				Daemon.writeString(out, arg);
+
+			out.flush();
+
+			var diagnostics = Daemon.readString(in);
+
+			if(writer == null)
+				System.err.print(diagnostics);
+			else
+			{
+				writer.write(diagnostics);
+				writer.flush();
+			}
+
+			return in.readInt();
+		}
+	}
+}
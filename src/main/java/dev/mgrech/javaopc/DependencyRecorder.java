@@ -0,0 +1,51 @@
+package dev.mgrech.javaopc;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+// collects the source files that types are resolved from while rewriting a file
+// work that is reused for other files captures the files it depended on, so they can be replayed there
+class DependencyRecorder
+{
+	private final Set<Path> dependencies = new HashSet<>();
+	private final List<Set<Path>> captures = new ArrayList<>();
+
+	void record(Path path)
+	{
+		dependencies.add(path);
+		captures.forEach(c -> c.add(path));
+	}
+
+	void replay(Set<Path> paths)
+	{
+		paths.forEach(this::record);
+	}
+
+	<T> T capture(Set<Path> into, Supplier<T> action)
+	{
+		captures.add(into);
+
+		try
+		{
+			return action.get();
+		}
+		finally
+		{
+			captures.remove(captures.size() - 1);
+		}
+	}
+
+	Set<Path> dependencies()
+	{
+		return dependencies;
+	}
+
+	void clear()
+	{
+		dependencies.clear();
+	}
+}
@@ -0,0 +1,84 @@
+package dev.mgrech.javaopc;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.resolution.UnsolvedSymbolException;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.symbolsolver.javaparsermodel.declarations.JavaParserClassDeclaration;
+import com.github.javaparser.symbolsolver.javaparsermodel.declarations.JavaParserEnumDeclaration;
+import com.github.javaparser.symbolsolver.javaparsermodel.declarations.JavaParserInterfaceDeclaration;
+import com.github.javaparser.symbolsolver.model.resolution.SymbolReference;
+import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
+
+import java.util.Optional;
+
+// records the source files of all types that are resolved through the wrapped solver
+public class DependencyRecordingTypeSolver implements TypeSolver
+{
+	private final TypeSolver solver;
+	private final DependencyRecorder dependencies;
+
+	private TypeSolver parent = null;
+
+	DependencyRecordingTypeSolver(TypeSolver solver, DependencyRecorder dependencies)
+	{
+		this.solver = solver;
+		this.dependencies = dependencies;
+
+		// declarations created by the wrapped solver must still see the root of the whole solver tree
+		solver.setParent(this);
+	}
+
+	private static Optional<Node> declarationNode(ResolvedReferenceTypeDeclaration decl)
+	{
+		if(decl instanceof JavaParserClassDeclaration)
+			return Optional.of(((JavaParserClassDeclaration)decl).getWrappedNode());
+
+		if(decl instanceof JavaParserInterfaceDeclaration)
+			return Optional.of(((JavaParserInterfaceDeclaration)decl).getWrappedNode());
+
+		if(decl instanceof JavaParserEnumDeclaration)
+			return Optional.of(((JavaParserEnumDeclaration)decl).getWrappedNode());
+
+		return Optional.empty();
+	}
+
+	@Override
+	public TypeSolver getParent()
+	{
+		return parent;
+	}
+
+	@Override
+	public void setParent(TypeSolver parent)
+	{
+		this.parent = parent;
+	}
+
+	@Override
+	public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name)
+	{
+		var ref = solver.tryToSolveType(name);
+
+		if(ref.isSolved())
+		{
+			declarationNode(ref.getCorrespondingDeclaration())
+				.flatMap(Node::findCompilationUnit)
+				.flatMap(CompilationUnit::getStorage)
+				.ifPresent(s -> dependencies.record(s.getPath()));
+		}
+
+		return ref;
+	}
+
+	@Override
+	public ResolvedReferenceTypeDeclaration solveType(String name) throws UnsolvedSymbolException
+	{
+		var ref = tryToSolveType(name);
+
+		if(!ref.isSolved())
+			throw new UnsolvedSymbolException(name);
+
+		return ref.getCorrespondingDeclaration();
+	}
+}
@@ -9,16 +9,26 @@ import java.util.ArrayList;
 public class ExprRewritingVisitorAdapter extends VoidVisitorAdapter<Void>
 {
 	private final ExprRewritingVisitor visitor;
+	private boolean replaced = false;
 
 	public ExprRewritingVisitorAdapter(ExprRewritingVisitor visitor)
 	{
 		this.visitor = visitor;
 	}
 
+	public boolean hasReplaced()
+	{
+		return replaced;
+	}
+
 	private void replaceIfNonNull(Expression expr, Expression replacement)
 	{
 		if(replacement != null)
+		{
 			expr.replace(replacement);
+			Attribution.invalidate(replacement);
+			replaced = true;
+		}
 	}
 
 	@Override
@@ -0,0 +1,188 @@
+package dev.mgrech.javaopc;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.DataKey;
+import com.github.javaparser.ast.Node;
+
+// where the time of rewriting a single file goes, and how much work resolving its operators took
+// the phases follow each other, entering one ends the one before, and each is recorded as a JFR event as well
+class FileMetrics
+{
+	enum Phase
+	{
+		PARSE("parse"),
+		CHECK("check"),
+		REWRITE("rewrite"),
+		PRINT("print");
+
+		final String label;
+
+		Phase(String label)
+		{
+			this.label = label;
+		}
+	}
+
+	enum Counter
+	{
+		// expressions handed to the symbol solver for their type
+		TYPE_RESOLUTIONS("typeResolutions"),
+
+		// operator and conversion methods resolved against one list of argument types
+		CANDIDATE_PROBES("candidateProbes"),
+
+		// combinations of converted and unconverted arguments tried
+		CONVERSION_PERMUTATIONS("conversionPermutations"),
+
+		// expressions without a type and operators without a unique method
+		FAILED_RESOLUTIONS("failedResolutions");
+
+		final String label;
+
+		Counter(String label)
+		{
+			this.label = label;
+		}
+	}
+
+	// the metrics of the file being rewritten, if they are recorded
+	static final DataKey<FileMetrics> KEY = new DataKey<>() {};
+
+	private final long[] nanos = new long[Phase.values().length];
+	private final long[] counts = new long[Counter.values().length];
+	private final JfrEvents.File event = new JfrEvents.File();
+
+	private String file = null;
+	private boolean rewritten = false;
+
+	// whether an operator site of the file was resolved without trying all of its candidates, see ResolutionBudget
+	private boolean budgetExceeded = false;
+
+	private Phase phase = null;
+	private long phaseStart = 0;
+	private JfrEvents.Phase phaseEvent = null;
+
+	FileMetrics()
+	{
+		event.begin();
+	}
+
+	// the qualified name of the first type of the file, or of its package or module if it declares none
+	static String nameOf(CompilationUnit cu)
+	{
+		var packageName = cu.getPackageDeclaration().map(p -> p.getNameAsString() + ".").orElse("");
+
+		if(!cu.getTypes().isEmpty())
+			return packageName + cu.getType(0).getNameAsString();
+
+		if(cu.getModule().isPresent())
+			return "module-info";
+
+		return packageName + "package-info";
+	}
+
+	static void count(Node location, Counter counter, long amount)
+	{
+		location.findCompilationUnit()
+		        .filter(cu -> cu.containsData(KEY))
+		        .ifPresent(cu -> cu.getData(KEY).counts[counter.ordinal()] += amount);
+	}
+
+	static void count(Node location, Counter counter)
+	{
+		count(location, counter, 1);
+	}
+
+	static void exceededBudget(Node location)
+	{
+		location.findCompilationUnit()
+		        .filter(cu -> cu.containsData(KEY))
+		        .ifPresent(cu -> cu.getData(KEY).budgetExceeded = true);
+	}
+
+	void setFile(String file)
+	{
+		this.file = file;
+	}
+
+	void setRewritten(boolean rewritten)
+	{
+		this.rewritten = rewritten;
+	}
+
+	String file()
+	{
+		return file;
+	}
+
+	boolean rewritten()
+	{
+		return rewritten;
+	}
+
+	boolean budgetExceeded()
+	{
+		return budgetExceeded;
+	}
+
+	long nanos(Phase phase)
+	{
+		return nanos[phase.ordinal()];
+	}
+
+	long count(Counter counter)
+	{
+		return counts[counter.ordinal()];
+	}
+
+	void enter(Phase next)
+	{
+		leave();
+		phase = next;
+		phaseEvent = new JfrEvents.Phase();
+		phaseEvent.begin();
+		phaseStart = System.nanoTime();
+	}
+
+	// ends the current phase, if there is one
+	void leave()
+	{
+		if(phase == null)
+			return;
+
+		nanos[phase.ordinal()] += System.nanoTime() - phaseStart;
+		phaseEvent.end();
+
+		if(phaseEvent.shouldCommit())
+		{
+			phaseEvent.file = file;
+			phaseEvent.phase = phase.label;
+			phaseEvent.commit();
+		}
+
+		phase = null;
+		phaseEvent = null;
+	}
+
+	// ends the current phase and the file
+	void finish()
+	{
+		leave();
+		event.end();
+
+		if(!event.shouldCommit())
+			return;
+
+		event.file = file;
+		event.rewritten = rewritten;
+		event.parseNanos = nanos(Phase.PARSE);
+		event.checkNanos = nanos(Phase.CHECK);
+		event.rewriteNanos = nanos(Phase.REWRITE);
+		event.printNanos = nanos(Phase.PRINT);
+		event.typeResolutions = count(Counter.TYPE_RESOLUTIONS);
+		event.candidateProbes = count(Counter.CANDIDATE_PROBES);
+		event.conversionPermutations = count(Counter.CONVERSION_PERMUTATIONS);
+		event.failedResolutions = count(Counter.FAILED_RESOLUTIONS);
+		event.commit();
+	}
+}
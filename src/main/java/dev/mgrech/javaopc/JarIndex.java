@@ -0,0 +1,152 @@
+package dev.mgrech.javaopc;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.zip.ZipFile;
+
+// the class files of a jar by the names the solver looks types up by, read from the central directory only
+// class files are read when a type is first looked up, see LazyJarTypeSolver
+// the index is shared by the solvers of all workers and kept for as long as the process lives, but not stored:
+// the central directory is read in one go, which is no slower than loading the names from a file
+class JarIndex
+{
+	private static final Map<Path, JarIndex> INDICES = new ConcurrentHashMap<>();
+
+	private final Path jar;
+	private final String fingerprint;
+
+	// e.g. 'a.b.C.D' to 'a/b/C$D.class', nested classes are named like JarTypeSolver names them
+	private final Map<String, String> entries;
+
+	// opened on the first lookup, ZipFile may be read from several threads
+	private volatile ZipFile file;
+
+	private JarIndex(Path jar, String fingerprint, Map<String, String> entries)
+	{
+		this.jar = jar;
+		this.fingerprint = fingerprint;
+		this.entries = entries;
+	}
+
+	static JarIndex of(Path jar)
+	{
+		var absolute = jar.toAbsolutePath().normalize();
+		var fingerprint = fingerprint(absolute);
+		var cached = INDICES.get(absolute);
+
+		if(cached != null && cached.fingerprint.equals(fingerprint))
+			return cached;
+
+		var entryNames = read(absolute);
+		var index = new JarIndex(absolute, fingerprint, entryNames.stream().collect(Collectors.toMap(JarIndex::className, e -> e, (a, b) -> a)));
+		var replaced = INDICES.put(absolute, index);
+
+		// the replaced index describes the jar as it was, a daemon would otherwise keep its file open for as long as it runs
+		if(replaced != null)
+			replaced.close();
+
+		return index;
+	}
+
+	private static String fingerprint(Path jar)
+	{
+		try
+		{
+			return Files.size(jar) + ":" + Files.getLastModifiedTime(jar).toMillis();
+		}
+		catch(IOException ex)
+		{
+			return "missing";
+		}
+	}
+
+	private static String className(String entryName)
+	{
+		return entryName.substring(0, entryName.length() - ".class".length()).replace('/', '.').replace('$', '.');
+	}
+
+	private static List<String> read(Path jar)
+	{
+		try(var file = new ZipFile(jar.toFile()))
+		{
+			return file.stream()
+			           .filter(e -> !e.isDirectory() && e.getName().endsWith(".class"))
+			           .map(e -> e.getName())
+			           .collect(Collectors.toList());
+		}
+		catch(IOException ex)
+		{
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	// a lookup after closing opens the file again
+	synchronized void close()
+	{
+		if(file == null)
+			return;
+
+		try
+		{
+			file.close();
+		}
+		catch(IOException ex)
+		{
+			// nothing is lost, the file was only read
+		}
+
+		file = null;
+	}
+
+	Path jar()
+	{
+		return jar;
+	}
+
+	Set<String> packages()
+	{
+		return entries.values()
+		              .stream()
+		              .map(e -> e.lastIndexOf('/') == -1 ? "" : e.substring(0, e.lastIndexOf('/')).replace('/', '.'))
+		              .collect(Collectors.toSet());
+	}
+
+	// null if the jar contains no class of this name
+	byte[] classFile(String name)
+	{
+		var entryName = entries.get(name);
+
+		if(entryName == null)
+			return null;
+
+		try
+		{
+			if(file == null)
+			{
+				synchronized(this)
+				{
+					if(file == null)
+						file = new ZipFile(jar.toFile());
+				}
+			}
+
+			var entry = file.getEntry(entryName);
+
+			try(var in = file.getInputStream(entry))
+			{
+				return in.readAllBytes();
+			}
+		}
+		catch(IOException ex)
+		{
+			throw new UncheckedIOException(ex);
+		}
+	}
+}
@@ -10,22 +10,34 @@ import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
 
 public class JavaOperatorCompiler
 {
+	// parsing a single file, JavaopcSession keeps its parsers for many files
 	public static CompilationUnit parse(Provider input, TypeSolver solver)
+	{
+		return parse(createParser(solver, new JavaOperatorCompilerPostProcessor(solver, null, null)), input);
+	}
+
+	static JavaParser createParser(TypeSolver solver, JavaOperatorCompilerPostProcessor postProcessor)
 	{
 		var config = new ParserConfiguration().setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_12)
 		                                      .setSymbolResolver(new JavaSymbolSolver(solver));
 
-		config.getPostProcessors().add(new JavaOperatorCompilerPostProcessor());
+		config.getPostProcessors().add(postProcessor);
+		return new JavaParser(config);
+	}
 
-		var parser = new JavaParser(config);
+	static CompilationUnit parse(JavaParser parser, Provider input)
+	{
 		var parse = parser.parse(ParseStart.COMPILATION_UNIT, input);
 
 		if(!parse.isSuccessful())
 		{
+			var message = new StringBuilder("failed to compile file");
+
+			// the problems are part of the message, so they reach the client when running in a daemon
 			for(var problem : parse.getProblems())
-				System.err.println(problem);
+				message.append(System.lineSeparator()).append(problem);
 
-			throw new RuntimeException("failed to compile file");
+			throw new RuntimeException(message.toString());
 		}
 
 		var cu = parse.getResult().orElse(null);
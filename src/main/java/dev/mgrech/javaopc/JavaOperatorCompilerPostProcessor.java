@@ -3,12 +3,56 @@ package dev.mgrech.javaopc;
 import com.github.javaparser.ParseResult;
 import com.github.javaparser.ParserConfiguration;
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.DataKey;
 import com.github.javaparser.ast.Node;
-import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
 
 public class JavaOperatorCompilerPostProcessor implements ParseResult.PostProcessor
 {
-	private static final boolean BENCH = System.getenv("JAVAOPC_BENCH") != null;
+	// whether rewriting changed the tree at all, if not the original text can be handed to javac as is
+	public static final DataKey<Boolean> REWRITTEN = new DataKey<>() {};
+
+	private final TypeSolver solver;
+	private final DependencyRecorder dependencies;
+
+	// resolutions are shared between the files of a build, while the parser outlives builds
+	private ResolutionCache resolutions;
+
+	// the metrics of the file being parsed, if they are recorded
+	private FileMetrics metrics = null;
+
+	// the profile of the build, if resolutions are profiled
+	private ResolutionProfile profile = null;
+
+	// the budget of each operator site, unlimited if null
+	private ResolutionBudget budget = null;
+
+	JavaOperatorCompilerPostProcessor(TypeSolver solver, ResolutionCache resolutions, DependencyRecorder dependencies)
+	{
+		this.solver = solver;
+		this.resolutions = resolutions;
+		this.dependencies = dependencies;
+	}
+
+	void setResolutions(ResolutionCache resolutions)
+	{
+		this.resolutions = resolutions;
+	}
+
+	void setMetrics(FileMetrics metrics)
+	{
+		this.metrics = metrics;
+	}
+
+	void setProfile(ResolutionProfile profile)
+	{
+		this.profile = profile;
+	}
+
+	void setBudget(ResolutionBudget budget)
+	{
+		this.budget = budget;
+	}
 
 	@Override
 	public void process(ParseResult<? extends Node> result, ParserConfiguration configuration)
@@ -18,23 +62,37 @@ public class JavaOperatorCompilerPostProcessor implements ParseResult.PostProces
 
 		assert result.getResult().isPresent();
 
-		if(BENCH)
+		var cu = (CompilationUnit)result.getResult().get();
+
+		if(metrics != null)
 		{
-			var className = result.getResult().get().findFirst(ClassOrInterfaceDeclaration.class).get().getNameAsString();
-			System.out.print("processing class " + className + " ... ");
+			metrics.setFile(FileMetrics.nameOf(cu));
+			metrics.enter(FileMetrics.Phase.CHECK);
+			cu.setData(FileMetrics.KEY, metrics);
 		}
 
-		var start = System.currentTimeMillis();
+		cu.setData(Lookup.TYPE_SOLVER, solver);
+
+		if(resolutions != null)
+			cu.setData(Lookup.RESOLUTION_CACHE, resolutions);
+
+		if(dependencies != null)
+			cu.setData(Lookup.DEPENDENCY_RECORDER, dependencies);
+
+		if(profile != null)
+			cu.setData(ResolutionProfile.KEY, profile);
+
+		if(budget != null)
+			cu.setData(ResolutionBudget.KEY, budget);
 
-		var cu = (CompilationUnit)result.getResult().get();
 		cu.accept(new OperatorDefinitionCheckingVisitor(), null);
-		cu.accept(new ExprRewritingVisitorAdapter(new OperatorVisitor()), null);
 
-		if(BENCH)
-		{
-			var end = System.currentTimeMillis();
-			var sec = ((double)(end - start)) / 1000;
-			System.out.println(sec + " s");
-		}
+		if(metrics != null)
+			metrics.enter(FileMetrics.Phase.REWRITE);
+
+		var visitor = new OperatorVisitor();
+		var adapter = new ExprRewritingVisitorAdapter(visitor);
+		cu.accept(adapter, null);
+		cu.setData(REWRITTEN, adapter.hasReplaced() || visitor.hasRewrittenInPlace());
 	}
 }
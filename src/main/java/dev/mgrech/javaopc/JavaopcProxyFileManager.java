@@ -3,8 +3,13 @@ package dev.mgrech.javaopc;
 import javax.tools.ForwardingJavaFileManager;
 import javax.tools.JavaFileObject;
 import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
 import java.io.IOException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
@@ -12,11 +17,21 @@ import java.util.stream.StreamSupport;
 public class JavaopcProxyFileManager extends ForwardingJavaFileManager<StandardJavaFileManager>
 {
 	private final Function<String, String> process;
+	private final ExecutorService executor;
+
+	// javac may list the same package more than once, but every file should only be rewritten once
+	private final Map<URI, JavaopcProxyFileObject> proxies = new HashMap<>();
 
 	public JavaopcProxyFileManager(StandardJavaFileManager fileManager, Function<String, String> process)
+	{
+		this(fileManager, process, null);
+	}
+
+	public JavaopcProxyFileManager(StandardJavaFileManager fileManager, Function<String, String> process, ExecutorService executor)
 	{
 		super(fileManager);
 		this.process = process;
+		this.executor = executor;
 	}
 
 	@Override
@@ -28,13 +43,27 @@ public class JavaopcProxyFileManager extends ForwardingJavaFileManager<StandardJ
 		return super.inferBinaryName(location, file);
 	}
 
+	private JavaFileObject proxy(Location location, JavaFileObject object)
+	{
+		if(object.getKind() != JavaFileObject.Kind.SOURCE)
+			return object;
+
+		var proxy = proxies.computeIfAbsent(object.toUri(), uri -> new JavaopcProxyFileObject(object, process, executor));
+
+		// source path files are rewritten up front, other sources only once javac asks for them
+		if(location == StandardLocation.SOURCE_PATH)
+			proxy.prefetch();
+
+		return proxy;
+	}
+
 	@Override
 	public Iterable<JavaFileObject> list(Location location, String packageName, Set<JavaFileObject.Kind> kinds, boolean recurse) throws IOException
 	{
 		Iterable<JavaFileObject> list = super.list(location, packageName, kinds, recurse);
 
 		return StreamSupport.stream(list.spliterator(), false)
-		                    .map(o -> o.getKind() == JavaFileObject.Kind.SOURCE ? new JavaopcProxyFileObject(o, process) : o)
+		                    .map(o -> proxy(location, o))
 		                    .collect(Collectors.toList());
 	}
 }
@@ -3,27 +3,97 @@ package dev.mgrech.javaopc;
 import javax.tools.JavaFileObject;
 import javax.tools.SimpleJavaFileObject;
 import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 
 public class JavaopcProxyFileObject extends SimpleJavaFileObject
 {
 	final JavaFileObject object;
 	private final Function<String, String> process;
+	private final ExecutorService executor;
+
+	private Future<String> pending = null;
+	private boolean pendingIgnoresEncodingErrors = false;
 
 	private String source = null;
+	private boolean sourceIgnoresEncodingErrors = false;
 
 	public JavaopcProxyFileObject(JavaFileObject object, Function<String, String> process)
+	{
+		this(object, process, null);
+	}
+
+	// if an executor is given, the rewrite always runs on one of its threads
+	public JavaopcProxyFileObject(JavaFileObject object, Function<String, String> process, ExecutorService executor)
 	{
 		super(object.toUri(), Kind.SOURCE);
 		this.object = object;
 		this.process = process;
+		this.executor = executor;
+	}
+
+	// submits the rewrite right away instead of when javac asks for the content
+	// javac reads the sources it compiles without ignoring encoding errors, so that is how they are prefetched
+	public JavaopcProxyFileObject prefetch()
+	{
+		return prefetch(false);
+	}
+
+	// a rewrite that decoded the source differently than asked for is submitted again
+	private JavaopcProxyFileObject prefetch(boolean ignoreEncodingErrors)
+	{
+		if(executor != null && (pending == null || pendingIgnoresEncodingErrors != ignoreEncodingErrors))
+		{
+			pending = executor.submit(() -> process(ignoreEncodingErrors));
+			pendingIgnoresEncodingErrors = ignoreEncodingErrors;
+		}
+
+		return this;
+	}
+
+	private String process(boolean ignoreEncodingErrors) throws IOException
+	{
+		return process.apply(object.getCharContent(ignoreEncodingErrors).toString());
+	}
+
+	private String await() throws IOException
+	{
+		try
+		{
+			return pending.get();
+		}
+		catch(InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException(ex);
+		}
+		catch(ExecutionException ex)
+		{
+			var cause = ex.getCause();
+
+			if(cause instanceof IOException)
+				throw (IOException)cause;
+
+			if(cause instanceof RuntimeException)
+				throw (RuntimeException)cause;
+
+			if(cause instanceof Error)
+				throw (Error)cause;
+
+			throw new RuntimeException(cause);
+		}
 	}
 
 	@Override
 	public CharSequence getCharContent(boolean ignoreEncodingErrors) throws IOException
 	{
-		if(source == null)
-			source = process.apply(object.getCharContent(ignoreEncodingErrors).toString());
+		if(source == null || sourceIgnoresEncodingErrors != ignoreEncodingErrors)
+		{
+			source = executor == null ? process(ignoreEncodingErrors) : prefetch(ignoreEncodingErrors).await();
+			sourceIgnoresEncodingErrors = ignoreEncodingErrors;
+		}
 
 		return source;
 	}
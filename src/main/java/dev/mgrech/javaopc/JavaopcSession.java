@@ -0,0 +1,118 @@
+package dev.mgrech.javaopc;
+
+import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+// rewrites any number of sources against the same class path, keeping the parsers and warm solvers of its workers
+// each rewrite borrows a worker for its duration, so a session may be used from as many threads as it likes,
+// but at most as many rewrites as it has workers run at the same time
+// creating a session registers its solvers with JavaParserFacade, which must not happen while other sessions rewrite
+public class JavaopcSession
+{
+	private final List<Worker> workers;
+	private final BlockingQueue<Worker> idle;
+	private final RewriteCache cache;
+	private final OperatorPrefilter prefilter;
+
+	// the metrics of every file rewritten, if they are collected
+	private final RewriteStats stats;
+
+	// the slowest operator resolutions, if they are profiled
+	private final ResolutionProfile profile;
+
+	// the budget of each operator site, unlimited if null
+	private final ResolutionBudget budget;
+
+	// operator resolutions depend on the sources being rewritten, so they are only shared until the next invalidate
+	private volatile ResolutionCache resolutions = new ResolutionCache();
+
+	JavaopcSession(List<Worker> workers, RewriteCache cache, OperatorPrefilter prefilter, RewriteStats stats,
+	               ResolutionProfile profile, ResolutionBudget budget)
+	{
+		this.workers = workers;
+		this.idle = new LinkedBlockingQueue<>(workers);
+		this.cache = cache;
+		this.prefilter = prefilter;
+		this.stats = stats;
+		this.profile = profile;
+		this.budget = budget;
+	}
+
+	// a session with one worker per job, resolving types from the given class path
+	public JavaopcSession(String classPath, int jobs)
+	{
+		this(classPath, null, jobs);
+	}
+
+	// like above, but for the platform of the given release, as passed to javac --release
+	public JavaopcSession(String classPath, String release, int jobs)
+	{
+		this(Main.createWorkers(classPath, release, null, jobs), null, null, null, null, null);
+	}
+
+	// a session with a single worker resolving types with the given solver
+	public JavaopcSession(TypeSolver solver)
+	{
+		this(List.of(registered(new Worker(solver))), null, null, null, null, null);
+	}
+
+	private static Worker registered(Worker worker)
+	{
+		worker.register();
+		return worker;
+	}
+
+	int jobs()
+	{
+		return workers.size();
+	}
+
+	// to be called whenever the sources rewritten by this session have changed
+	public void invalidate()
+	{
+		resolutions = new ResolutionCache();
+	}
+
+	public String rewrite(String source)
+	{
+		Worker worker;
+
+		try
+		{
+			worker = idle.take();
+		}
+		catch(InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(ex);
+		}
+
+		try
+		{
+			return worker.process(source, cache, resolutions, prefilter, stats, profile, budget);
+		}
+		finally
+		{
+			idle.add(worker);
+		}
+	}
+
+	public String rewrite(Path file)
+	{
+		try
+		{
+			return rewrite(Files.readString(file));
+		}
+		catch(IOException ex)
+		{
+			throw new UncheckedIOException(ex);
+		}
+	}
+}
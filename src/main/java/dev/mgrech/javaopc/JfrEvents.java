@@ -0,0 +1,70 @@
+package dev.mgrech.javaopc;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// the events recorded while rewriting, when running with a flight recording, e.g. -XX:StartFlightRecording
+// files are named by their package and first type, since sources are handed to a session without their path
+class JfrEvents
+{
+	@Name("dev.mgrech.javaopc.Phase")
+	@Label("Rewrite Phase")
+	@Category("javaopc")
+	@StackTrace(false)
+	@Description("One phase of rewriting a source file: parse, check, rewrite or print")
+	static class Phase extends Event
+	{
+		@Label("File")
+		String file;
+
+		@Label("Phase")
+		String phase;
+	}
+
+	@Name("dev.mgrech.javaopc.File")
+	@Label("Rewrite File")
+	@Category("javaopc")
+	@StackTrace(false)
+	@Description("Rewriting a source file, from parsing it to printing the result")
+	static class File extends Event
+	{
+		@Label("File")
+		String file;
+
+		@Label("Rewritten")
+		boolean rewritten;
+
+		@Label("Parse Time")
+		@Timespan
+		long parseNanos;
+
+		@Label("Check Time")
+		@Timespan
+		long checkNanos;
+
+		@Label("Rewrite Time")
+		@Timespan
+		long rewriteNanos;
+
+		@Label("Print Time")
+		@Timespan
+		long printNanos;
+
+		@Label("Type Resolutions")
+		long typeResolutions;
+
+		@Label("Candidate Probes")
+		long candidateProbes;
+
+		@Label("Conversion Permutations")
+		long conversionPermutations;
+
+		@Label("Failed Resolutions")
+		long failedResolutions;
+	}
+}
@@ -0,0 +1,112 @@
+package dev.mgrech.javaopc;
+
+import com.github.javaparser.resolution.UnsolvedSymbolException;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.symbolsolver.javassistmodel.JavassistFactory;
+import com.github.javaparser.symbolsolver.model.resolution.SymbolReference;
+import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
+import javassist.ClassPool;
+import javassist.NotFoundException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+// resolves types from a jar like JarTypeSolver, but takes the class names from the shared index of the jar
+// instead of listing the jar for every worker, and reads a class file only when its type is first looked up
+// JarTypeSolver creates a new declaration on every lookup, here every name resolves to the same declaration,
+// so that types from the jar compare equal and their models are built once for all files a worker processes
+public class LazyJarTypeSolver implements TypeSolver
+{
+	private final JarIndex index;
+	private final Platform platform;
+
+	// like the solvers themselves, the class pool and the declarations belong to a single worker
+	private ClassPool pool = null;
+	private final Map<String, SymbolReference<ResolvedReferenceTypeDeclaration>> found = new HashMap<>();
+
+	private TypeSolver parent = null;
+
+	LazyJarTypeSolver(JarIndex index, Platform platform)
+	{
+		this.index = index;
+		this.platform = platform;
+	}
+
+	@Override
+	public TypeSolver getParent()
+	{
+		return parent;
+	}
+
+	@Override
+	public void setParent(TypeSolver parent)
+	{
+		this.parent = parent;
+	}
+
+	private ClassPool pool()
+	{
+		if(pool == null)
+		{
+			// like in JarTypeSolver, the pool finds the supertypes of the classes it makes in the jar and in the platform,
+			// but in the platform the class path is compiled for instead of that of the running JDK
+			pool = new ClassPool(false);
+
+			try
+			{
+				pool.appendClassPath(index.jar().toString());
+				pool.appendClassPath(platform);
+			}
+			catch(NotFoundException ex)
+			{
+				throw new RuntimeException(ex);
+			}
+		}
+
+		return pool;
+	}
+
+	private SymbolReference<ResolvedReferenceTypeDeclaration> solve(String name)
+	{
+		var classFile = index.classFile(name);
+
+		if(classFile == null)
+			return SymbolReference.unsolved(ResolvedReferenceTypeDeclaration.class);
+
+		try
+		{
+			var ctClass = pool().makeClass(new ByteArrayInputStream(classFile));
+			return SymbolReference.solved(JavassistFactory.toTypeDeclaration(ctClass, getRoot()));
+		}
+		catch(IOException ex)
+		{
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	@Override
+	public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name)
+	{
+		var ref = found.get(name);
+
+		// not computeIfAbsent, building a declaration may look up other types of the same jar
+		if(ref == null)
+			found.put(name, ref = solve(name));
+
+		return ref;
+	}
+
+	@Override
+	public ResolvedReferenceTypeDeclaration solveType(String name) throws UnsolvedSymbolException
+	{
+		var ref = tryToSolveType(name);
+
+		if(!ref.isSolved())
+			throw new UnsolvedSymbolException(name);
+
+		return ref.getCorrespondingDeclaration();
+	}
+}
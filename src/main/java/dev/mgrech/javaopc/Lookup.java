@@ -1,18 +1,35 @@
 package dev.mgrech.javaopc;
 
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.DataKey;
+import com.github.javaparser.ast.ImportDeclaration;
 import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.EnumDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
 import com.github.javaparser.ast.expr.Expression;
 import com.github.javaparser.ast.expr.MethodCallExpr;
 import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.ObjectCreationExpr;
 import com.github.javaparser.resolution.declarations.ResolvedMethodDeclaration;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
 import com.github.javaparser.resolution.declarations.ResolvedValueDeclaration;
 import com.github.javaparser.resolution.types.ResolvedType;
+import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
+import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFactory;
+import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
+import com.github.javaparser.symbolsolver.resolution.MethodResolutionLogic;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -20,15 +37,15 @@ public class Lookup
 {
 	public static ResolvedType resolveType(Expression location, Expression expr)
 	{
+		// operands have usually been attributed when their operator was visited
+		if(Attribution.isAttributed(expr))
+			return Attribution.typeOf(expr);
+
 		location.replace(expr);
 
 		try
 		{
-			return expr.calculateResolvedType();
-		}
-		catch(RuntimeException ex)
-		{
-			return null;
+			return Attribution.typeOfOrNull(expr);
 		}
 		finally
 		{
@@ -71,11 +88,8 @@ public class Lookup
 		VARARGS,
 	}
 
-	private static InvocationType classify(Expression expr, MethodCallExpr invocation)
+	private static InvocationType classify(ResolvedMethodDeclaration decl, List<ResolvedType> argTypes)
 	{
-		var decl = resolveMethodInvocationAtLocation(expr, invocation);
-		assert decl != null;
-
 		if(decl.hasVariadicParameter())
 			return InvocationType.VARARGS;
 
@@ -84,147 +98,730 @@ public class Lookup
 		                          .map(ResolvedValueDeclaration::getType)
 		                          .collect(Collectors.toList());
 
-		var argTypes = invocation.getArguments()
-		                         .stream()
-		                         .map(e -> resolveType(expr, e))
-		                         .collect(Collectors.toList());
-
 		for(var i = 0; i != paramTypes.size(); ++i)
-			if(!paramTypes.get(i).equals(argTypes.get(i)))
+			if(!Types.isSameType(paramTypes.get(i), argTypes.get(i)))
 				return InvocationType.WEAK;
 
 		return InvocationType.STRICT;
 	}
 
-	private static MethodCallExpr disambiguate(Expression expr, List<MethodCallExpr> candidates)
+	private static InvocationType classify(Expression expr, MethodCallExpr invocation)
 	{
-		if(candidates.isEmpty())
-			return null;
+		var decl = resolveMethodInvocationAtLocation(expr, invocation);
+		assert decl != null;
 
-		var classification = new EnumMap<InvocationType, List<MethodCallExpr>>(InvocationType.class);
+		var argTypes = invocation.getArguments()
+		                         .stream()
+		                         .map(e -> resolveType(expr, e))
+		                         .collect(Collectors.toList());
 
-		for(var type : InvocationType.values())
-			classification.put(type, new ArrayList<>());
+		return classify(decl, argTypes);
+	}
+
+	// a candidate that resolved, i.e. the way it is invoked and the forms of its arguments
+	private static class Candidate
+	{
+		final InvocationTarget target;
+		final List<ArgumentForm> forms;
 
-		for(var candidate : candidates)
-			classification.get(classify(expr, candidate)).add(candidate);
+		Candidate(InvocationTarget target, List<ArgumentForm> forms)
+		{
+			this.target = target;
+			this.forms = forms;
+		}
+	}
 
+	private static Resolution disambiguate(EnumMap<InvocationType, List<Candidate>> classification, Set<Path> dependencies)
+	{
 		for(var type : InvocationType.values())
 		{
 			var candidatesForType = classification.get(type);
 
 			if(candidatesForType.size() == 1)
-				return candidatesForType.get(0);
+			{
+				var candidate = candidatesForType.get(0);
+				return new Resolution(false, candidate.target.qualifier, candidate.forms, dependencies);
+			}
 
 			if(!candidatesForType.isEmpty())
-				return CompileErrors.ambiguousMethodCall();
+				return new Resolution(true, null, null, dependencies);
+		}
+
+		return new Resolution(false, null, null, dependencies);
+	}
+
+	// the outcome of resolving an operator, independent of the tree and the solver it was resolved with,
+	// so it can be applied to other occurrences of the same operator on the same types in the same scope
+	static class Resolution
+	{
+		final boolean ambiguous;
+
+		// the class qualifier of the invocation, null if it is unqualified or invoked on a receiver
+		final String qualifier;
+
+		// the forms of the arguments, null if no candidate applies
+		final List<ArgumentForm> forms;
+
+		// the source files the resolution resolved types from, which are dependencies of every file it is applied to
+		final Set<Path> dependencies;
+
+		// false if the resolution budget ran out before all candidates were probed, which depends on the site
+		final boolean complete;
+
+		Resolution(boolean ambiguous, String qualifier, List<ArgumentForm> forms, Set<Path> dependencies, boolean complete)
+		{
+			this.ambiguous = ambiguous;
+			this.qualifier = qualifier;
+			this.forms = forms;
+			this.dependencies = dependencies;
+			this.complete = complete;
+		}
+
+		Resolution(boolean ambiguous, String qualifier, List<ArgumentForm> forms, Set<Path> dependencies)
+		{
+			this(ambiguous, qualifier, forms, dependencies, true);
+		}
+	}
+
+	// the ways an argument can be passed to an operator method, only the forms that resolve are considered
+	private enum ArgumentForm
+	{
+		AS_IS,
+		UNQUALIFIED_CONVERSION,
+		QUALIFIED_CONVERSION,
+	}
+
+	private static Expression applyForm(Expression arg, ArgumentForm form, ResolvedType argType)
+	{
+		switch(form)
+		{
+		case AS_IS:
+			return arg;
+
+		case UNQUALIFIED_CONVERSION:
+			return new MethodCallExpr(Operators.CONVERSION, arg);
+
+		case QUALIFIED_CONVERSION:
+			var classQualifier = new NameExpr(argType.asReferenceType().getTypeDeclaration().getName());
+			return new MethodCallExpr(classQualifier, Operators.CONVERSION, NodeList.nodeList(arg));
+
+		default: throw new AssertionError("unknown argument form: " + form);
+		}
+	}
+
+	// a way of invoking an operator method, i.e. the types its method is looked up in, and how the invocation is written
+	private static class InvocationTarget
+	{
+		// null if the types can't be determined without resolving the invocation in the tree
+		final List<ResolvedReferenceTypeDeclaration> declarations;
+
+		// the class qualifier, null for unqualified invocations and invocations on a receiver
+		final String qualifier;
+
+		InvocationTarget(List<ResolvedReferenceTypeDeclaration> declarations, String qualifier)
+		{
+			this.declarations = declarations;
+			this.qualifier = qualifier;
+		}
+	}
+
+	private static MethodCallExpr createInvocation(Expression receiver, String qualifier, String opMethodName, NodeList<Expression> args)
+	{
+		if(receiver != null)
+			return new MethodCallExpr(receiver, opMethodName, args);
+
+		return new MethodCallExpr(qualifier == null ? null : new NameExpr(qualifier), opMethodName, args);
+	}
+
+	private static NodeList<Expression> applyForms(List<Expression> args, List<ArgumentForm> forms, List<ResolvedType> argTypes)
+	{
+		var convArgs = new NodeList<Expression>();
+
+		for(var i = 0; i != args.size(); ++i)
+			convArgs.add(applyForm(args.get(i), forms.get(i), argTypes.get(i)));
+
+		return convArgs;
+	}
+
+	// the type solver of the file being rewritten, without it invocations can only be resolved in the tree
+	public static final DataKey<TypeSolver> TYPE_SOLVER = new DataKey<>() {};
+
+	// the resolutions of the current build, none if resolutions are not shared between occurrences
+	static final DataKey<ResolutionCache> RESOLUTION_CACHE = new DataKey<>() {};
+
+	// the recorder of the dependencies of the file being rewritten, if they are recorded
+	static final DataKey<DependencyRecorder> DEPENDENCY_RECORDER = new DataKey<>() {};
+
+	private static <T> T fileData(Expression location, DataKey<T> key)
+	{
+		return location.findCompilationUnit()
+		               .filter(cu -> cu.containsData(key))
+		               .map(cu -> cu.getData(key))
+		               .orElse(null);
+	}
+
+	// what is known about types in the current build, none if nothing is shared between occurrences
+	static TypeMetadata typeMetadata(Expression location)
+	{
+		var cache = fileData(location, RESOLUTION_CACHE);
+		return cache == null ? null : cache.types().recordingInto(fileData(location, DEPENDENCY_RECORDER));
+	}
+
+	// the type a class qualifier of an invocation at the given location refers to
+	static ResolvedReferenceTypeDeclaration resolveTypeName(Expression location, String name, TypeSolver solver)
+	{
+		var cu = location.findCompilationUnit().orElse(null);
+		var scope = cu == null ? null : OperatorScope.of(cu, solver, typeMetadata(location));
+		var typeScope = scope == null ? null : scope.typeNameScope(location, name);
+
+		if(typeScope == null)
+			return solveTypeName(location, name, solver);
+
+		var typeNames = scope.typeNames(typeScope);
+		var type = typeNames.get(name);
+
+		if(type == null)
+			typeNames.put(name, type = Optional.ofNullable(solveTypeName(location, name, solver)));
+
+		return type.orElse(null);
+	}
+
+	private static ResolvedReferenceTypeDeclaration solveTypeName(Expression location, String name, TypeSolver solver)
+	{
+		try
+		{
+			var ref = JavaParserFactory.getContext(location, solver).solveType(name);
+
+			if(ref.isSolved() && ref.getCorrespondingDeclaration().isType())
+				return ref.getCorrespondingDeclaration().asReferenceType();
+		}
+		catch(RuntimeException ex)
+		{
+			// an unknown qualifier means the invocation doesn't resolve
 		}
 
-		throw new AssertionError("unreachable");
+		return null;
 	}
 
-	private static List<List<Expression>> generateConversionPermutations(Expression expr, List<Expression> args, boolean permitConversions)
+	// whether an unqualified invocation of the given method may resolve anywhere in the file of the location
+	private static boolean mayResolveUnqualified(Expression location, String methodName, TypeSolver solver)
 	{
-		var result = new ArrayList<List<Expression>>();
+		if(solver == null)
+			return true;
 
-		// we generate all the permutations of applying conversions to all given arguments by iterating over
-		// the respective integer range and using the bit pattern as a mask for which arguments to try converting
-		// if we don't permit conversions, we only do the first iteration with the all-zeroes mask (i.e. range [0..1[)
-		// each arg gets a 2-bit value: 0 = no conversion, 1 = unqualified conversion, 2 = qualified conversion, 3 = undefined
-		var limit = permitConversions ? 1 << (2 * args.size()) : 1;
+		return location.findCompilationUnit()
+		               .map(cu -> OperatorScope.of(cu, solver, typeMetadata(location)).mayResolve(methodName))
+		               .orElse(true);
+	}
 
-		// potential optimization: try conversions for arguments in advance,
-		// then only iterate over the masks for which conversions are valid
-		for(var i = 0; i != limit; ++i)
+	// unqualified invocations are looked up in the enclosing class, which continues with
+	// the outer classes and the static imports if it has no method with the given name
+	private static List<ResolvedReferenceTypeDeclaration> enclosingTypeDeclarations(Expression location, TypeSolver solver)
+	{
+		try
 		{
-			var convArgs = new ArrayList<Expression>();
+			var type = JavaParserFacade.get(solver).getTypeOfThisIn(location);
+			return List.of(type.asReferenceType().getTypeDeclaration());
+		}
+		catch(RuntimeException ex)
+		{
+			return null;
+		}
+	}
+
+	private static List<ResolvedReferenceTypeDeclaration> scopeTypeDeclarations(Expression location, Expression scope, ResolvedType scopeType, TypeSolver solver)
+	{
+		if(scope instanceof NameExpr)
+		{
+			var declaration = resolveTypeName(location, scope.asNameExpr().getNameAsString(), solver);
+
+			if(declaration != null)
+				return List.of(declaration);
+		}
+
+		if(scopeType == null)
+			return null;
 
-			for(var j = 0; j != args.size(); ++j)
+		if(scopeType.isReferenceType())
+			return List.of(scopeType.asReferenceType().getTypeDeclaration());
+
+		if(scopeType.isTypeVariable())
+		{
+			return scopeType.asTypeParameter()
+			                .getBounds()
+			                .stream()
+			                .map(bound -> bound.getType().asReferenceType().getTypeDeclaration())
+			                .collect(Collectors.toList());
+		}
+
+		return null;
+	}
+
+	// resolves an invocation like JavaParser does for an invocation in the tree, but from the argument types alone
+	private static ResolvedMethodDeclaration solveMethod(Expression location, List<ResolvedReferenceTypeDeclaration> declarations,
+	                                                     String name, List<ResolvedType> argTypes)
+	{
+		var metadata = typeMetadata(location);
+
+		for(var declaration : declarations)
+		{
+			// most types declare no operators, there is no need to match the arguments against all their methods
+			if(metadata != null && TypeMetadata.isCompiled(declaration) && !metadata.operatorMethods(declaration).contains(name))
+				continue;
+
+			try
 			{
-				var arg = args.get(j);
-				var argType = resolveType(expr, arg);
+				var ref = MethodResolutionLogic.solveMethodInType(declaration, name, new ArrayList<>(argTypes));
 
-				// apply conversions according to mask
-				switch((i >> (2 * j)) & 3)
+				if(ref.isSolved())
+					return ref.getCorrespondingDeclaration();
+			}
+			catch(RuntimeException ex)
+			{
+				// ambiguous or unresolvable, same as an invocation in the tree that fails to resolve
+			}
+		}
+
+		return null;
+	}
+
+	// the classes that qualified conversions of the arguments are looked up in, i.e. what the simple names
+	// of the argument types refer to at the given location
+	private static List<ResolvedReferenceTypeDeclaration> conversionQualifiers(Expression expr, List<ResolvedType> argTypes, TypeSolver solver)
+	{
+		var result = new ArrayList<ResolvedReferenceTypeDeclaration>();
+
+		for(var argType : argTypes)
+		{
+			if(solver == null || argType == null || !argType.isReferenceType())
+				result.add(null);
+			else
+				result.add(resolveTypeName(expr, argType.asReferenceType().getTypeDeclaration().getName(), solver));
+		}
+
+		return result;
+	}
+
+	// probes each conversion of each argument once, instead of once per combination, since an invocation
+	// can only resolve if each of its converted arguments resolves on its own
+	// maps each viable form to the type of the resulting argument expression, which is null if the
+	// types can't be determined directly and the candidates have to be resolved in the tree instead
+	private static List<EnumMap<ArgumentForm, ResolvedType>> argumentForms(Expression expr, List<Expression> args, List<ResolvedType> argTypes,
+	                                                                       List<ResolvedReferenceTypeDeclaration> qualifiers,
+	                                                                       boolean permitConversions, TypeSolver solver)
+	{
+		var result = new ArrayList<EnumMap<ArgumentForm, ResolvedType>>();
+		var enclosingTypes = solver == null ? null : enclosingTypeDeclarations(expr, solver);
+		var unqualifiedConversions = permitConversions && mayResolveUnqualified(expr, Operators.CONVERSION, solver);
+
+		for(var i = 0; i != args.size(); ++i)
+		{
+			var arg = args.get(i);
+			var argType = argTypes.get(i);
+
+			var forms = new EnumMap<ArgumentForm, ResolvedType>(ArgumentForm.class);
+			forms.put(ArgumentForm.AS_IS, argType);
+
+			if(permitConversions)
+			{
+				for(var form : List.of(ArgumentForm.UNQUALIFIED_CONVERSION, ArgumentForm.QUALIFIED_CONVERSION))
 				{
-				case 0:
-					convArgs.add(arg);
-					break;
+					if(form == ArgumentForm.QUALIFIED_CONVERSION && (argType == null || !argType.isReferenceType()))
+						continue;
+
+					if(form == ArgumentForm.UNQUALIFIED_CONVERSION && !unqualifiedConversions)
+						continue;
+
+					if(argType == null || enclosingTypes == null)
+					{
+						var conversion = (MethodCallExpr)applyForm(arg, form, argType);
+						FileMetrics.count(expr, FileMetrics.Counter.CANDIDATE_PROBES);
+
+						if(resolveMethodInvocationAtLocation(expr, conversion) != null)
+							forms.put(form, null);
+
+						continue;
+					}
 
-				case 1:
-					convArgs.add(new MethodCallExpr(Operators.CONVERSION, arg));
-					break;
+					var declarations = enclosingTypes;
 
-				case 2:
-					if(argType == null || !argType.isReferenceType())
-						break;
+					if(form == ArgumentForm.QUALIFIED_CONVERSION)
+					{
+						var qualifier = qualifiers.get(i);
 
-					var classQualifier = new NameExpr(argType.asReferenceType().getTypeDeclaration().getName());
-					convArgs.add(new MethodCallExpr(classQualifier, Operators.CONVERSION, NodeList.nodeList(arg)));
-					break;
+						if(qualifier == null)
+							continue;
 
-				case 3:
-					break;
+						declarations = List.of(qualifier);
+					}
+
+					FileMetrics.count(expr, FileMetrics.Counter.CANDIDATE_PROBES);
+					var conversion = solveMethod(expr, declarations, Operators.CONVERSION, List.of(argType));
+
+					// the result type of a generic conversion depends on inference
+					if(conversion != null)
+						forms.put(form, conversion.getTypeParameters().isEmpty() ? conversion.getReturnType() : null);
 				}
 			}
 
-			if(convArgs.size() == args.size())
-				result.add(convArgs);
+			result.add(forms);
 		}
 
 		return result;
 	}
 
+	// generates the combinations of argument forms that apply exactly 'conversions' conversions
+	private static void generateConversionPermutations(List<EnumMap<ArgumentForm, ResolvedType>> forms, int conversions,
+	                                                   List<ArgumentForm> prefix, List<List<ArgumentForm>> result)
+	{
+		var index = prefix.size();
+
+		if(forms.size() - index < conversions)
+			return;
+
+		if(index == forms.size())
+		{
+			result.add(new ArrayList<>(prefix));
+			return;
+		}
+
+		for(var form : forms.get(index).keySet())
+		{
+			var cost = form == ArgumentForm.AS_IS ? 0 : 1;
+
+			if(cost > conversions)
+				continue;
+
+			prefix.add(form);
+			generateConversionPermutations(forms, conversions - cost, prefix, result);
+			prefix.remove(prefix.size() - 1);
+		}
+	}
+
+	// resolves a candidate from the types of its arguments if possible, and by inserting it into the tree otherwise
+	// candidates are classified right away, while they are the parent of the argument expressions they share with other candidates
+	private static void classifyCandidate(Expression expr, Expression receiver, String opMethodName, InvocationTarget target,
+	                                      List<ArgumentForm> forms, NodeList<Expression> args, List<ResolvedType> argTypes,
+	                                      EnumMap<InvocationType, List<Candidate>> classification)
+	{
+		FileMetrics.count(expr, FileMetrics.Counter.CANDIDATE_PROBES);
+
+		if(target.declarations != null && !argTypes.contains(null))
+		{
+			var decl = solveMethod(expr, target.declarations, opMethodName, argTypes);
+
+			if(decl != null)
+				classification.get(classify(decl, argTypes)).add(new Candidate(target, forms));
+
+			return;
+		}
+
+		var invocation = createInvocation(receiver, target.qualifier, opMethodName, args);
+
+		if(resolveMethodInvocationAtLocation(expr, invocation) != null)
+			classification.get(classify(expr, invocation)).add(new Candidate(target, forms));
+	}
+
+	// tries the argument lists in order of increasing number of conversions and stops at the first number
+	// of conversions that yields an exact match, since no candidate requiring more conversions can be better
+	// if the budget runs out while trying conversions, the candidates without conversions are all there is
+	private static Resolution resolveWithConversions(Expression expr, Expression receiver, String opMethodName,
+	                                                 List<Expression> args, List<ResolvedType> argTypes,
+	                                                 List<ResolvedReferenceTypeDeclaration> qualifiers, boolean permitConversions,
+	                                                 List<InvocationTarget> targets, TypeSolver solver, Set<Path> dependencies,
+	                                                 ResolutionBudget budget)
+	{
+		var start = System.nanoTime();
+		var forms = argumentForms(expr, args, argTypes, qualifiers, permitConversions, solver);
+		var maxConversions = (int)forms.stream().filter(f -> f.size() > 1).count();
+
+		var classification = new EnumMap<InvocationType, List<Candidate>>(InvocationType.class);
+		EnumMap<InvocationType, List<Candidate>> unconverted = null;
+		var probes = 0L;
+
+		for(var type : InvocationType.values())
+			classification.put(type, new ArrayList<>());
+
+		for(var conversions = 0; conversions <= maxConversions; ++conversions)
+		{
+			if(conversions == 1)
+			{
+				unconverted = new EnumMap<>(InvocationType.class);
+
+				for(var entry : classification.entrySet())
+					unconverted.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+			}
+
+			var perms = new ArrayList<List<ArgumentForm>>();
+			generateConversionPermutations(forms, conversions, new ArrayList<>(), perms);
+			FileMetrics.count(expr, FileMetrics.Counter.CONVERSION_PERMUTATIONS, perms.size());
+
+			for(var perm : perms)
+			{
+				var permTypes = IntStream.range(0, perm.size())
+				                         .mapToObj(i -> forms.get(i).get(perm.get(i)))
+				                         .collect(Collectors.toList());
+
+				// every candidate gets its own argument nodes
+				for(var target : targets)
+				{
+					if(conversions != 0 && budget != null && budget.isExceeded(probes, start))
+					{
+						budget.exceeded(expr, opMethodName, probes, start);
+						var fallback = disambiguate(unconverted, dependencies);
+						return new Resolution(fallback.ambiguous, fallback.qualifier, fallback.forms, dependencies, false);
+					}
+
+					classifyCandidate(expr, receiver, opMethodName, target, perm, applyForms(args, perm, argTypes), permTypes, classification);
+					++probes;
+				}
+			}
+
+			if(!classification.get(InvocationType.STRICT).isEmpty())
+				break;
+		}
+
+		return disambiguate(classification, dependencies);
+	}
+
+	// whether unqualified invocations of the given methods may be resolved in the given type, if not they are
+	// resolved in the enclosing types and finally through the static imports of the file
+	private static boolean mayDeclareMethods(TypeDeclaration<?> type, List<String> methodNames)
+	{
+		if(methodNames.stream().anyMatch(name -> !type.getMethodsByName(name).isEmpty()))
+			return true;
+
+		// inherited methods are candidates as well
+		if(type instanceof ClassOrInterfaceDeclaration)
+		{
+			var classDecl = (ClassOrInterfaceDeclaration)type;
+			return classDecl.getExtendedTypes().isNonEmpty() || classDecl.getImplementedTypes().isNonEmpty();
+		}
+
+		return type instanceof EnumDeclaration && ((EnumDeclaration)type).getImplementedTypes().isNonEmpty();
+	}
+
+	// identifies what unqualified invocations of the given methods resolve to at a location, i.e. the enclosing types
+	// that may declare them and the static imports, returns null inside anonymous and local classes, which have no name
+	private static String scopeKey(Expression expr, List<String> methodNames)
+	{
+		var key = new StringBuilder();
+
+		for(var node = expr.getParentNode().orElse(null); node != null; node = node.getParentNode().orElse(null))
+		{
+			if(node instanceof ObjectCreationExpr && ((ObjectCreationExpr)node).getAnonymousClassBody().isPresent())
+				return null;
+
+			if(node instanceof ClassOrInterfaceDeclaration && ((ClassOrInterfaceDeclaration)node).isLocalClassDeclaration())
+				return null;
+
+			// type variables of different methods may share their name
+			if(node instanceof CallableDeclaration && ((CallableDeclaration<?>)node).isGeneric())
+				key.append(((CallableDeclaration<?>)node).getDeclarationAsString()).append(';');
+
+			if(node instanceof TypeDeclaration)
+			{
+				var type = (TypeDeclaration<?>)node;
+
+				if(mayDeclareMethods(type, methodNames))
+					key.append(type.getFullyQualifiedName().orElse("?")).append(';');
+			}
+
+			if(node instanceof CompilationUnit)
+			{
+				var cu = (CompilationUnit)node;
+
+				cu.getImports()
+				  .stream()
+				  .filter(ImportDeclaration::isStatic)
+				  .map(ImportDeclaration::toString)
+				  .sorted()
+				  .forEach(i -> key.append(i.trim()));
+			}
+		}
+
+		return key.toString();
+	}
+
+	// describes a type like describe(), except that type variables are qualified by the class or method declaring
+	// them, since the type variables of different classes, unlike those of different methods, aren't part of the scope
+	private static void appendTypeKey(StringBuilder key, ResolvedType type)
+	{
+		if(type.isTypeVariable())
+			key.append(type.asTypeParameter().getQualifiedName());
+		else if(type.isArray())
+		{
+			appendTypeKey(key, type.asArrayType().getComponentType());
+			key.append("[]");
+		}
+		else if(type.isWildcard())
+		{
+			var wildcard = type.asWildcard();
+			key.append('?');
+
+			if(wildcard.isBounded())
+			{
+				key.append(wildcard.isExtends() ? " extends " : " super ");
+				appendTypeKey(key, wildcard.getBoundedType());
+			}
+		}
+		else if(type.isReferenceType() && !type.asReferenceType().typeParametersValues().isEmpty())
+		{
+			key.append(type.asReferenceType().getQualifiedName()).append('<');
+
+			for(var argument : type.asReferenceType().typeParametersValues())
+			{
+				appendTypeKey(key, argument);
+				key.append(',');
+			}
+
+			key.append('>');
+		}
+		else
+			key.append(type.describe());
+	}
+
+	private static String typeKey(ResolvedType type)
+	{
+		var key = new StringBuilder();
+		appendTypeKey(key, type);
+		return key.toString();
+	}
+
+	// identifies everything a resolution depends on, so occurrences in different files can share it
+	private static String resolutionKey(Expression expr, String opMethodName, List<ResolvedType> argTypes,
+	                                    List<ResolvedReferenceTypeDeclaration> qualifiers, List<InvocationTarget> targets,
+	                                    boolean permitConversions, boolean invokeStatic)
+	{
+		if(argTypes.contains(null) || targets.stream().anyMatch(t -> t.declarations == null))
+			return null;
+
+		var methodNames = permitConversions ? List.of(opMethodName, Operators.CONVERSION) : List.of(opMethodName);
+		var scope = scopeKey(expr, methodNames);
+
+		if(scope == null)
+			return null;
+
+		// qualified invocations and invocations on a receiver are resolved in their types only, the enclosing type
+		// of unqualified invocations is identified by the scope, since they continue to the outer types and imports
+		// the order of the targets depends on hash codes of the declarations, which differ between workers
+		var targetKeys = targets.stream()
+		                        .map(t -> invokeStatic && t.qualifier == null
+		                                  ? "unqualified"
+		                                  : t.qualifier + ":" + t.declarations.stream()
+		                                                                  .map(ResolvedReferenceTypeDeclaration::getQualifiedName)
+		                                                                  .collect(Collectors.joining(",")))
+		                        .sorted()
+		                        .collect(Collectors.joining(";"));
+
+		var argKeys = argTypes.stream().map(Lookup::typeKey).collect(Collectors.joining(";"));
+
+		// qualified conversions are looked up in the classes the simple names of the argument types refer to
+		var qualifierKeys = qualifiers.stream()
+		                              .map(q -> q == null ? "-" : q.getQualifiedName())
+		                              .collect(Collectors.joining(";"));
+
+		return String.join("|", opMethodName, Boolean.toString(permitConversions), Boolean.toString(invokeStatic),
+		                   scope, targetKeys, argKeys, permitConversions ? qualifierKeys : "");
+	}
+
 	public static MethodCallExpr resolveOverloadedOperator(Expression expr, String opMethodName,
 	                                                       List<Expression> args, List<ResolvedType> primaryTypes,
 	                                                       boolean permitConversions, boolean invokeStatic)
 	{
-		var candidates = new ArrayList<MethodCallExpr>();
+		var profile = fileData(expr, ResolutionProfile.KEY);
 
-		if(invokeStatic)
+		if(profile == null)
+			return resolveOperatorSite(expr, opMethodName, args, primaryTypes, permitConversions, invokeStatic);
+
+		var site = profile.begin(expr, opMethodName, fileData(expr, FileMetrics.KEY));
+
+		try
 		{
-			var perms = generateConversionPermutations(expr, args, permitConversions);
+			return resolveOperatorSite(expr, opMethodName, args, primaryTypes, permitConversions, invokeStatic);
+		}
+		finally
+		{
+			profile.end(site);
+		}
+	}
+
+	private static MethodCallExpr resolveOperatorSite(Expression expr, String opMethodName,
+	                                                  List<Expression> args, List<ResolvedType> primaryTypes,
+	                                                  boolean permitConversions, boolean invokeStatic)
+	{
+		var solver = fileData(expr, TYPE_SOLVER);
+		var targets = new ArrayList<InvocationTarget>();
+		var receiver = invokeStatic ? null : args.get(0);
+		var invokeArgs = invokeStatic ? args : args.subList(1, args.size());
 
+		if(invokeStatic)
+		{
 			// qualified invocation
 			for(var type : new HashSet<>(primaryTypes)) // deduplicate type list
 			{
 				if(!type.isReferenceType())
 					continue;
 
-				var classQualifier = new NameExpr(type.asReferenceType().getTypeDeclaration().getName());
+				var className = type.asReferenceType().getTypeDeclaration().getName();
+				var declaration = solver == null ? null : resolveTypeName(expr, className, solver);
 
-				for(var perm : perms)
-				{
-					var invocation = new MethodCallExpr(classQualifier, opMethodName, NodeList.nodeList(perm));
+				// a qualifier that doesn't name a type in this scope can't be invoked
+				if(solver != null && declaration == null)
+					continue;
 
-					if(resolveMethodInvocationAtLocation(expr, invocation) != null)
-						candidates.add(invocation);
-				}
+				targets.add(new InvocationTarget(declaration == null ? null : List.of(declaration), className));
 			}
 
-			// unqualified invocation
-			for(var perm : perms)
-			{
-				var invocation = new MethodCallExpr(opMethodName, perm.toArray(new Expression[0]));
-
-				if(resolveMethodInvocationAtLocation(expr, invocation) != null)
-					candidates.add(invocation);
-			}
+			// unqualified invocation, unless no class it could be resolved in declares the operator
+			if(mayResolveUnqualified(expr, opMethodName, solver))
+				targets.add(new InvocationTarget(solver == null ? null : enclosingTypeDeclarations(expr, solver), null));
 		}
 		else
 		{
-			var invokeArgs = args.subList(1, args.size());
-			var perms = generateConversionPermutations(expr, invokeArgs, permitConversions);
+			var declarations = solver == null ? null : scopeTypeDeclarations(expr, receiver, primaryTypes.get(0), solver);
+			targets.add(new InvocationTarget(declarations, null));
+		}
 
-			for(var perm : perms)
-			{
-				var invocation = new MethodCallExpr(args.get(0), opMethodName, NodeList.nodeList(perm));
+		// the types of the arguments are computed once, instead of once per candidate
+		var argTypes = invokeArgs.stream().map(arg -> resolveType(expr, arg)).collect(Collectors.toList());
+		var qualifiers = permitConversions
+		                 ? conversionQualifiers(expr, argTypes, solver)
+		                 : Collections.<ResolvedReferenceTypeDeclaration>nCopies(argTypes.size(), null);
 
-				if(resolveMethodInvocationAtLocation(expr, invocation) != null)
-					candidates.add(invocation);
-			}
+		var cache = fileData(expr, RESOLUTION_CACHE);
+		var recorder = fileData(expr, DEPENDENCY_RECORDER);
+		var key = cache == null ? null : resolutionKey(expr, opMethodName, argTypes, qualifiers, targets, permitConversions, invokeStatic);
+		var resolution = key == null ? null : cache.get(key);
+
+		if(resolution == null)
+		{
+			var dependencies = new HashSet<Path>();
+			var budget = fileData(expr, ResolutionBudget.KEY);
+			Supplier<Resolution> resolve = () -> resolveWithConversions(expr, receiver, opMethodName, invokeArgs, argTypes, qualifiers,
+			                                                            permitConversions, targets, solver, dependencies, budget);
+
+			resolution = recorder == null ? resolve.get() : recorder.capture(dependencies, resolve);
+
+			// other occurrences get a budget of their own
+			if(key != null && resolution.complete)
+				cache.put(key, resolution);
+		}
+		else if(recorder != null)
+		{
+			// the file depends on whatever the original resolution depended on
+			recorder.replay(resolution.dependencies);
 		}
 
-		return disambiguate(expr, candidates);
+		if(resolution.ambiguous || resolution.forms == null)
+			FileMetrics.count(expr, FileMetrics.Counter.FAILED_RESOLUTIONS);
+
+		if(resolution.ambiguous)
+			return CompileErrors.ambiguousMethodCall();
+
+		if(resolution.forms == null)
+			return null;
+
+		return createInvocation(receiver, resolution.qualifier, opMethodName, applyForms(invokeArgs, resolution.forms, argTypes));
 	}
 }
@@ -1,77 +1,405 @@
 package dev.mgrech.javaopc;
 
-import com.github.javaparser.Providers;
-import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
-import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
-import com.github.javaparser.symbolsolver.resolution.typesolvers.JarTypeSolver;
-import com.github.javaparser.symbolsolver.resolution.typesolvers.JavaParserTypeSolver;
-import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
-
 import javax.tools.ToolProvider;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
 public class Main
 {
-	private static TypeSolver solverForClassPath(String paths)
+	static class Options
 	{
-		if(paths == null)
-			return new CombinedTypeSolver(new JavaParserTypeSolver("."), new ReflectionTypeSolver());
+		String classPath = "";
+		String cacheDirectory = null;
+		String daemonSocket = null;
+		String clientSocket = null;
+		String emitDirectory = null;
+		String statsFile = null;
+		int profiledSites = 0;
+		long resolutionBudget = 0;
+		long resolutionTimeout = 0;
+		String sourcePath = null;
+		String release = null;
+		int jobs = 1;
+		boolean prefilter = true;
+		boolean verbose = false;
 
-		var solver = (TypeSolver)new ReflectionTypeSolver();
+		final List<String> sourceFileArgs = new ArrayList<>();
+		final List<String> javacArgs = new ArrayList<>();
 
-		try
+		// everything except the client options, i.e. the arguments to forward to a daemon
+		final List<String> forwardedArgs = new ArrayList<>();
+
+		// when only emitting sources, types declared in the source roots are resolved from source as well
+		String solverClassPath()
+		{
+			if(emitDirectory == null || sourcePath == null)
+				return classPath;
+
+			return classPath.isEmpty() ? sourcePath : classPath + ";" + sourcePath;
+		}
+	}
+
+	private static int parseJobs(String value)
+	{
+		var jobs = Integer.parseInt(value);
+
+		if(jobs < 1)
+			throw new IllegalArgumentException("invalid number of jobs: " + value);
+
+		return jobs;
+	}
+
+	private static int parseProfiledSites(String value)
+	{
+		var sites = Integer.parseInt(value);
+
+		if(sites < 1)
+			throw new IllegalArgumentException("invalid number of sites to profile: " + value);
+
+		return sites;
+	}
+
+	private static long parseLimit(String value)
+	{
+		var limit = Long.parseLong(value);
+
+		if(limit < 0)
+			throw new IllegalArgumentException("invalid limit: " + value);
+
+		return limit;
+	}
+
+	static Options parseOptions(List<String> args)
+	{
+		var options = new Options();
+
+		for(int i = 0; i != args.size(); ++i)
 		{
-			for(var path : paths.split(";"))
+			var arg = args.get(i);
+			var hasValue = i != args.size() - 1;
+
+			if(arg.equals("--use-daemon") && hasValue)
 			{
-				var nextSolver = path.endsWith(".jar") ? new JarTypeSolver(path) : new JavaParserTypeSolver(path);
-				solver = new CombinedTypeSolver(solver, nextSolver);
+				options.clientSocket = args.get(++i);
+				continue;
 			}
+
+			options.forwardedArgs.add(arg);
+
+			if(arg.equals("--daemon") && hasValue)
+			{
+				options.daemonSocket = args.get(++i);
+				options.forwardedArgs.add(options.daemonSocket);
+				continue;
+			}
+
+			if((arg.equals("-j") || arg.equals("--jobs")) && hasValue)
+			{
+				options.forwardedArgs.add(args.get(i + 1));
+				options.jobs = parseJobs(args.get(++i));
+				continue;
+			}
+
+			if(arg.equals("--rewrite-cache") && hasValue)
+			{
+				options.cacheDirectory = args.get(++i);
+				options.forwardedArgs.add(options.cacheDirectory);
+				continue;
+			}
+
+			if(arg.equals("--emit-sources") && hasValue)
+			{
+				options.emitDirectory = args.get(++i);
+				options.forwardedArgs.add(options.emitDirectory);
+				continue;
+			}
+
+			if(arg.equals("--stats") && hasValue)
+			{
+				options.statsFile = args.get(++i);
+				options.forwardedArgs.add(options.statsFile);
+				continue;
+			}
+
+			if(arg.equals("--profile-resolution") && hasValue)
+			{
+				options.forwardedArgs.add(args.get(i + 1));
+				options.profiledSites = parseProfiledSites(args.get(++i));
+				continue;
+			}
+
+			if(arg.equals("--resolution-budget") && hasValue)
+			{
+				options.forwardedArgs.add(args.get(i + 1));
+				options.resolutionBudget = parseLimit(args.get(++i));
+				continue;
+			}
+
+			if(arg.equals("--resolution-timeout") && hasValue)
+			{
+				options.forwardedArgs.add(args.get(i + 1));
+				options.resolutionTimeout = parseLimit(args.get(++i));
+				continue;
+			}
+
+			if(arg.equals("--no-prefilter"))
+			{
+				options.prefilter = false;
+				continue;
+			}
+
+			// javac's own flag, which is passed on to it as well
+			if(arg.equals("-verbose"))
+				options.verbose = true;
+
+			if((arg.equals("-cp") || arg.equals("-classpath")) && hasValue)
+				options.classPath = args.get(i + 1);
+
+			if((arg.equals("-sourcepath") || arg.equals("--source-path")) && hasValue)
+				options.sourcePath = args.get(i + 1);
+
+			if(arg.equals("--release") && hasValue)
+				options.release = args.get(i + 1);
+
+			if(arg.endsWith(".java"))
+				options.sourceFileArgs.add(arg);
+			else
+				options.javacArgs.add(arg);
 		}
-		catch(IOException ex)
+
+		return options;
+	}
+
+	static List<Path> classPathEntries(String paths)
+	{
+		return Arrays.stream(paths.split(";")).map(Paths::get).collect(Collectors.toList());
+	}
+
+	// the source roots are indexed in the rewrite cache as well, if there is one
+	static Path indexDirectory(Options options)
+	{
+		return options.cacheDirectory == null ? null : Paths.get(options.cacheDirectory);
+	}
+
+	// the types of the platform are those of the given release, or those of the running JDK if it is null
+	static List<Worker> createWorkers(String classPath, String release, Path indexDirectory, int count)
+	{
+		var index = new ClassPathIndex(classPath, release, indexDirectory);
+		var workers = new ArrayList<Worker>();
+
+		for(int i = 0; i != count; ++i)
 		{
-			throw new RuntimeException(ex);
+			var worker = new Worker(index);
+			worker.register();
+			workers.add(worker);
 		}
 
-		return solver;
+		return workers;
 	}
 
-	private static String process(String source, TypeSolver solver)
+	private static RewriteCache createCache(Options options)
 	{
-		var cu = JavaOperatorCompiler.parse(Providers.provider(source), solver);
+		if(options.cacheDirectory == null)
+			return null;
+
+		return new RewriteCache(Paths.get(options.cacheDirectory), classPathEntries(options.solverClassPath()), options.release);
+	}
 
-		if(cu == null)
+	private static OperatorPrefilter createPrefilter(Options options)
+	{
+		if(!options.prefilter)
 			return null;
 
-		return cu.toString();
+		var sourceFiles = options.sourceFileArgs.stream().map(Paths::get).collect(Collectors.toList());
+		return new OperatorPrefilter(classPathEntries(options.solverClassPath()), sourceFiles, indexDirectory(options));
 	}
 
-	public static void main(String[] args)
+	// how many files were passed on unchanged is only of interest when looking into where the time of a build goes
+	private static void printSummary(Options options, OperatorPrefilter prefilter, PrintWriter writer)
 	{
-		String classPath = "";
+		if(prefilter != null && (options.verbose || options.statsFile != null || options.profiledSites != 0))
+			writer.println(prefilter.summary());
+	}
+
+	private static RewriteStats createStats(Options options)
+	{
+		return options.statsFile == null ? null : new RewriteStats();
+	}
 
-		for(int i = 0; i != args.length - 1; ++i)
-			if(args[i].equals("-cp") || args[i].equals("-classpath"))
-				classPath = args[i + 1];
+	private static void writeStats(Options options, RewriteStats stats)
+	{
+		if(stats != null)
+			stats.write(Paths.get(options.statsFile));
+	}
 
-		var solver = solverForClassPath(classPath);
+	// the slowest operator sites are reported after the build, if asked for
+	private static ResolutionProfile createProfile(Options options)
+	{
+		return options.profiledSites == 0 ? null : new ResolutionProfile(options.profiledSites);
+	}
 
-		var sourceFileArgs = Arrays.stream(args).filter(a ->  a.endsWith(".java")).collect(Collectors.toList());
-		var javacArgs = Arrays.stream(args).filter(a -> !a.endsWith(".java")).collect(Collectors.toList());
+	private static void printProfile(ResolutionProfile profile, PrintWriter writer)
+	{
+		if(profile != null)
+			writer.println(profile.report());
+	}
+
+	// a budget of zero candidates and zero milliseconds is no budget at all
+	private static ResolutionBudget createBudget(Options options)
+	{
+		if(options.resolutionBudget == 0 && options.resolutionTimeout == 0)
+			return null;
+
+		return new ResolutionBudget(options.resolutionBudget, options.resolutionTimeout);
+	}
+
+	private static void printWarnings(ResolutionBudget budget, PrintWriter writer)
+	{
+		if(budget != null)
+			budget.warnings().forEach(writer::println);
+	}
+
+	private static PrintWriter diagnosticWriter(Writer out)
+	{
+		return new PrintWriter(out == null ? new OutputStreamWriter(System.err) : out);
+	}
+
+	// runs javac with the given options and rewrites sources with the given workers, one per job
+	// diagnostics are written to 'out', or to System.err if it is null
+	static boolean compile(Options options, List<Worker> workers, Writer out)
+	{
+		var prefilter = createPrefilter(options);
+		var stats = createStats(options);
+		var profile = createProfile(options);
+		var budget = createBudget(options);
+		var session = new JavaopcSession(workers, createCache(options), prefilter, stats, profile, budget);
+		Function<String, String> process = session::rewrite;
+		ExecutorService executor = options.jobs == 1 ? null : Executors.newFixedThreadPool(options.jobs);
 
 		var javac = ToolProvider.getSystemJavaCompiler();
 		var manager = javac.getStandardFileManager(null, null, null);
 
-		var sourceFiles = StreamSupport.stream(manager.getJavaFileObjectsFromStrings(sourceFileArgs).spliterator(), false)
-		                               .map(o -> new JavaopcProxyFileObject(o, s -> process(s, solver)))
-		                               .collect(Collectors.toList());
+		try
+		{
+			var sourceFiles = StreamSupport.stream(manager.getJavaFileObjectsFromStrings(options.sourceFileArgs).spliterator(), false)
+			                               .map(o -> new JavaopcProxyFileObject(o, process, executor).prefetch())
+			                               .collect(Collectors.toList());
+
+			var javaopcFileManager = new JavaopcProxyFileManager(manager, process, executor);
+			var task = javac.getTask(out, javaopcFileManager, null, options.javacArgs, null, sourceFiles);
+			var success = task.call();
+			writeStats(options, stats);
+
+			var writer = diagnosticWriter(out);
+			printWarnings(budget, writer);
+			printSummary(options, prefilter, writer);
+			printProfile(profile, writer);
+			writer.flush();
+
+			return success;
+		}
+		finally
+		{
+			if(executor != null)
+				executor.shutdownNow();
+
+			try
+			{
+				manager.close();
+			}
+			catch(IOException ex)
+			{
+				throw new UncheckedIOException(ex);
+			}
+		}
+	}
+
+	// writes the rewritten sources of the source path roots and of the given source files to the
+	// emit directory instead of compiling them, so they can be handed to any other build tool
+	static boolean emitSources(Options options, List<Worker> workers, Writer out)
+	{
+		var writer = diagnosticWriter(out);
+		var prefilter = createPrefilter(options);
+		var stats = createStats(options);
+		var profile = createProfile(options);
+		var budget = createBudget(options);
+		var session = new JavaopcSession(workers, createCache(options), prefilter, stats, profile, budget);
+		var emitter = new SourceEmitter(Paths.get(options.emitDirectory), session, writer);
+
+		var roots = options.sourcePath == null ? List.<Path>of() : classPathEntries(options.sourcePath);
 
-		var javaopcFileManager = new JavaopcProxyFileManager(manager, s -> process(s, solver));
-		var task = javac.getTask(null, javaopcFileManager, null, javacArgs, null, sourceFiles);
+		try
+		{
+			roots.forEach(emitter::emitTree);
+			options.sourceFileArgs.forEach(f -> emitter.emitFile(Paths.get(f), roots));
+		}
+		catch(RuntimeException ex)
+		{
+			emitter.finish();
+			throw ex;
+		}
+
+		var success = emitter.finish();
+		writeStats(options, stats);
+		printWarnings(budget, writer);
+		printSummary(options, prefilter, writer);
+		printProfile(profile, writer);
+		writer.flush();
+
+		return success;
+	}
+
+	static boolean run(Options options, List<Worker> workers, Writer out)
+	{
+		if(options.emitDirectory != null)
+			return emitSources(options, workers, out);
+
+		return compile(options, workers, out);
+	}
+
+	// runs javaopc like the command line does, but writes diagnostics to 'out' and returns the exit code
+	// a daemon serves requests until the process ends, so with --daemon this never returns
+	public static int run(List<String> args, Writer out) throws IOException
+	{
+		var options = parseOptions(args);
+
+		if(options.daemonSocket != null)
+		{
+			new Daemon(Paths.get(options.daemonSocket)).run();
+			return 0;
+		}
+
+		if(options.clientSocket != null)
+		{
+			var exitCode = DaemonClient.run(Paths.get(options.clientSocket), options.forwardedArgs, out);
+
+			// without a running daemon, we simply compile in this process
+			if(exitCode != null)
+				return exitCode;
+		}
+
+		var workers = createWorkers(options.solverClassPath(), options.release, indexDirectory(options), options.jobs);
+		return run(options, workers, out) ? 0 : 1;
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		var exitCode = run(Arrays.asList(args), null);
 
-		if(!task.call())
-			System.exit(1);
+		if(exitCode != 0)
+			System.exit(exitCode);
 	}
 }
@@ -0,0 +1,673 @@
+package dev.mgrech.javaopc;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// decides from the tokens of a file whether rewriting it can change anything, so that files without any
+// operator types are handed on without being parsed
+//
+// overloads are only found in the enclosing classes and their ancestors, in statically imported classes
+// and in the classes of the operands, so a file can only use them if it mentions a class declaring
+// operator methods, or a class whose declarations mention one, e.g. by returning an operator type
+// comparisons of other Comparable types and invocations of functional interfaces need no operator methods,
+// so they are recognized syntactically instead
+public class OperatorPrefilter
+{
+	// the simple names a source file or class file declares and the names it mentions
+	private static class Unit
+	{
+		final Set<String> declared;
+		final Set<String> mentioned;
+		final boolean declaresOperators;
+		final String fingerprint;
+
+		Unit(Set<String> declared, Set<String> mentioned, boolean declaresOperators, String fingerprint)
+		{
+			this.declared = declared;
+			this.mentioned = mentioned;
+			this.declaresOperators = declaresOperators;
+			this.fingerprint = fingerprint;
+		}
+	}
+
+	private static final int MAGIC = 0x4a4f5055;
+	private static final int VERSION = 1;
+
+	// the daemon builds many times with mostly unchanged class paths, so units survive between builds
+	private static final Map<Path, Unit> SOURCE_UNITS = new ConcurrentHashMap<>();
+	private static final Map<Path, List<Unit>> JAR_UNITS = new ConcurrentHashMap<>();
+	private static final Map<Path, String> JAR_FINGERPRINTS = new ConcurrentHashMap<>();
+
+	private final Set<String> operatorTypeNames;
+	private final AtomicInteger checked = new AtomicInteger();
+	private final AtomicInteger skipped = new AtomicInteger();
+
+	// the indices of class path entries are stored in the given directory, if it isn't null
+	public OperatorPrefilter(List<Path> classPath, List<Path> sourceFiles, Path indexDirectory)
+	{
+		var units = new ArrayList<Unit>();
+
+		// like the class path index of the solver, entries are scanned in parallel
+		classPath.parallelStream()
+		         .map(e -> Files.isDirectory(e) ? sourceUnits(SourceIndex.of(e, indexDirectory))
+		                   : Files.isRegularFile(e) ? jarUnits(e, indexDirectory) : List.<Unit>of())
+		         .forEachOrdered(units::addAll);
+
+		// the files being compiled may declare operator types as well
+		sourceFiles.parallelStream().map(OperatorPrefilter::sourceUnit).forEachOrdered(units::add);
+
+		operatorTypeNames = operatorTypeNames(units);
+	}
+
+	private static boolean isOperatorMethodName(String name)
+	{
+		return !name.equals(Operators.COMPARISON) && Operators.lookup(name) != null;
+	}
+
+	private static String fileFingerprint(Path file) throws IOException
+	{
+		return Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis();
+	}
+
+	private static Unit sourceUnit(Path file)
+	{
+		try
+		{
+			var fingerprint = fileFingerprint(file);
+			var cached = SOURCE_UNITS.get(file);
+
+			if(cached != null && cached.fingerprint.equals(fingerprint))
+				return cached;
+
+			var tokens = SourceTokens.tokenize(Files.readString(file));
+			var declared = new HashSet<String>();
+			var mentioned = new HashSet<String>();
+
+			for(var i = 0; i != tokens.size(); ++i)
+			{
+				var token = tokens.get(i);
+
+				if(token.isIdentifier())
+					mentioned.add(token.text);
+
+				var declaresType = token.isKeyword("class") || token.isKeyword("interface") || token.isKeyword("enum") || token.is("record");
+
+				// excludes class literals, whose keyword follows a dot
+				if(declaresType && i + 1 != tokens.size() && tokens.get(i + 1).isIdentifier() && (i == 0 || !tokens.get(i - 1).is(".")))
+					declared.add(tokens.get(i + 1).text);
+			}
+
+			var declaresOperators = mentioned.stream().anyMatch(OperatorPrefilter::isOperatorMethodName);
+			var unit = new Unit(declared, mentioned, declaresOperators, fingerprint);
+			SOURCE_UNITS.put(file, unit);
+			return unit;
+		}
+		catch(IOException ex)
+		{
+			// an unreadable file is not found by the solver either
+			return new Unit(Set.of(), Set.of(), false, "");
+		}
+	}
+
+	private static List<Unit> sourceUnits(SourceIndex index)
+	{
+		return index.files()
+		            .stream()
+		            .map(OperatorPrefilter::sourceUnit)
+		            .collect(Collectors.toList());
+	}
+
+	// the types of an indexed file are its member types, other classes cannot be referred to from other files anyway
+	private static Unit sourceUnit(SourceIndex.FileRecord file)
+	{
+		var declared = file.types.stream().map(t -> t.name.substring(t.name.lastIndexOf('.') + 1)).collect(Collectors.toSet());
+		var declaresOperators = file.mentioned.stream().anyMatch(OperatorPrefilter::isOperatorMethodName);
+		return new Unit(declared, file.mentioned, declaresOperators, "");
+	}
+
+	private static void addSimpleNames(String binaryName, Set<String> names)
+	{
+		var simpleName = binaryName.substring(binaryName.lastIndexOf('/') + 1);
+
+		for(var part : simpleName.split("\\$"))
+			if(!part.isEmpty())
+				names.add(part);
+	}
+
+	// binary class names are runs of identifier characters and slashes within class names, descriptors and signatures
+	private static void addClassNames(String string, Set<String> names)
+	{
+		var start = 0;
+
+		for(var i = 0; i <= string.length(); ++i)
+		{
+			if(i != string.length() && (Character.isJavaIdentifierPart(string.charAt(i)) || string.charAt(i) == '/'))
+				continue;
+
+			var run = string.substring(start, i);
+
+			if(run.indexOf('/') > 0)
+				addSimpleNames(run, names);
+
+			start = i + 1;
+		}
+	}
+
+	// the class name and the strings of the constant pool are all that is needed: they contain the names of
+	// the declared methods as well as the names of all classes referenced by signatures and code
+	private static Unit classFileUnit(InputStream stream) throws IOException
+	{
+		var in = new DataInputStream(stream);
+
+		if(in.readInt() != 0xCAFEBABE)
+			return null;
+
+		in.readUnsignedShort();
+		in.readUnsignedShort();
+
+		var count = in.readUnsignedShort();
+		var strings = new String[count];
+		var classNameIndices = new int[count];
+
+		for(var i = 1; i < count; ++i)
+		{
+			var tag = in.readUnsignedByte();
+
+			switch(tag)
+			{
+			case 1: strings[i] = in.readUTF(); break;
+			case 7: classNameIndices[i] = in.readUnsignedShort(); break;
+			case 8: case 16: case 19: case 20: in.readUnsignedShort(); break;
+			case 15: in.readUnsignedByte(); in.readUnsignedShort(); break;
+			case 3: case 4: case 9: case 10: case 11: case 12: case 17: case 18: in.readInt(); break;
+
+			// longs and doubles take up two entries
+			case 5: case 6: in.readLong(); ++i; break;
+
+			default: return null;
+			}
+		}
+
+		in.readUnsignedShort();
+		var thisClass = in.readUnsignedShort();
+
+		var declared = new HashSet<String>();
+		addSimpleNames(strings[classNameIndices[thisClass]], declared);
+
+		var mentioned = new HashSet<String>();
+		var declaresOperators = false;
+
+		for(var string : strings)
+		{
+			if(string == null)
+				continue;
+
+			declaresOperators |= isOperatorMethodName(string);
+
+			// most strings are member names and literals, which cannot contain a binary class name
+			if(string.indexOf('/') != -1)
+				addClassNames(string, mentioned);
+		}
+
+		return new Unit(declared, mentioned, declaresOperators, "");
+	}
+
+	private static List<Unit> jarUnits(Path jar, Path indexDirectory)
+	{
+		try
+		{
+			var fingerprint = fileFingerprint(jar);
+			var cached = JAR_UNITS.get(jar);
+
+			if(cached != null && fingerprint.equals(JAR_FINGERPRINTS.get(jar)))
+				return cached;
+
+			// reading every class file of every jar dominates startup, so the units are stored next to the index of the jar
+			var store = indexDirectory == null ? null : indexDirectory.resolve("index").resolve(RewriteCache.hash(jar.toAbsolutePath().normalize().toString()) + ".units");
+			var units = store == null ? null : loadJarUnits(store, fingerprint);
+
+			if(units == null)
+			{
+				units = readJarUnits(jar);
+
+				if(store != null)
+					saveJarUnits(store, fingerprint, units);
+			}
+
+			JAR_UNITS.put(jar, units);
+			JAR_FINGERPRINTS.put(jar, fingerprint);
+			return units;
+		}
+		catch(IOException ex)
+		{
+			// the solver cannot read the jar either
+			return List.of();
+		}
+	}
+
+	private static List<Unit> readJarUnits(Path jar) throws IOException
+	{
+		var units = new ArrayList<Unit>();
+
+		try(var file = new JarFile(jar.toFile()))
+		{
+			for(var entries = file.entries(); entries.hasMoreElements();)
+			{
+				var entry = entries.nextElement();
+
+				if(!entry.getName().endsWith(".class"))
+					continue;
+
+				try(var in = file.getInputStream(entry))
+				{
+					// reading the constant pool entry by entry from the inflater is several times slower
+					var unit = classFileUnit(new ByteArrayInputStream(in.readAllBytes()));
+
+					if(unit != null)
+						units.add(unit);
+				}
+			}
+		}
+
+		return units;
+	}
+
+	// the names of all units are stored once, the units refer to them by their position
+	private static List<Unit> loadJarUnits(Path store, String fingerprint)
+	{
+		try(var channel = FileChannel.open(store))
+		{
+			var in = new SourceIndex.Reader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+
+			if(in.buffer.getInt() != MAGIC || in.buffer.getInt() != VERSION || !in.string().equals(fingerprint))
+				return null;
+
+			var names = in.strings();
+			var units = new ArrayList<Unit>();
+
+			for(var count = in.buffer.getInt(); count != 0; --count)
+			{
+				var declaresOperators = in.buffer.get() != 0;
+				var declared = loadNames(in.buffer, names);
+				var mentioned = loadNames(in.buffer, names);
+				units.add(new Unit(declared, mentioned, declaresOperators, ""));
+			}
+
+			return units;
+		}
+		catch(IOException | RuntimeException ex)
+		{
+			// a missing or damaged store is simply read from the jar again
+			return null;
+		}
+	}
+
+	private static Set<String> loadNames(ByteBuffer buffer, List<String> names)
+	{
+		var result = new HashSet<String>();
+
+		for(var count = buffer.getInt(); count != 0; --count)
+			result.add(names.get(buffer.getInt()));
+
+		return result;
+	}
+
+	private static void saveJarUnits(Path store, String fingerprint, List<Unit> units)
+	{
+		var positions = new LinkedHashMap<String, Integer>();
+
+		for(var unit : units)
+		{
+			for(var name : unit.declared)
+				positions.putIfAbsent(name, positions.size());
+
+			for(var name : unit.mentioned)
+				positions.putIfAbsent(name, positions.size());
+		}
+
+		try
+		{
+			Files.createDirectories(store.getParent());
+			var temp = Files.createTempFile(store.getParent(), "units", ".tmp");
+
+			try
+			{
+				try(var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp))))
+				{
+					out.writeInt(MAGIC);
+					out.writeInt(VERSION);
+					SourceIndex.writeString(out, fingerprint);
+					SourceIndex.writeStrings(out, positions.keySet());
+					out.writeInt(units.size());
+
+					for(var unit : units)
+					{
+						out.writeByte(unit.declaresOperators ? 1 : 0);
+						saveNames(out, unit.declared, positions);
+						saveNames(out, unit.mentioned, positions);
+					}
+				}
+
+				Files.move(temp, store, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			}
+			finally
+			{
+				Files.deleteIfExists(temp);
+			}
+		}
+		catch(IOException ex)
+		{
+			// like the index of the jar, the units are an optimization only
+		}
+	}
+
+	private static void saveNames(DataOutputStream out, Set<String> names, Map<String, Integer> positions) throws IOException
+	{
+		out.writeInt(names.size());
+
+		for(var name : names)
+			out.writeInt(positions.get(name));
+	}
+
+	// the names of the classes declaring operator methods, and of all classes mentioning those, transitively
+	private static Set<String> operatorTypeNames(List<Unit> units)
+	{
+		var names = new HashSet<String>();
+		var mentionedBy = new HashMap<String, List<Unit>>();
+		var pending = new ArrayDeque<Unit>();
+
+		for(var unit : units)
+		{
+			for(var name : unit.mentioned)
+				mentionedBy.computeIfAbsent(name, n -> new ArrayList<>()).add(unit);
+
+			if(unit.declaresOperators)
+				pending.add(unit);
+		}
+
+		while(!pending.isEmpty())
+		{
+			for(var name : pending.remove().declared)
+			{
+				if(!names.add(name))
+					continue;
+
+				pending.addAll(mentionedBy.getOrDefault(name, List.of()));
+			}
+		}
+
+		return names;
+	}
+
+	// finds the end of a type argument list starting at 'start', or returns -1 if the tokens cannot be one
+	private static int typeArgumentsEnd(List<SourceTokens.Token> tokens, int start)
+	{
+		var depth = 0;
+
+		for(var i = start; i != tokens.size(); ++i)
+		{
+			var token = tokens.get(i);
+
+			if(token.is("<"))
+				++depth;
+			else if(token.is(">") || token.is(">>") || token.is(">>>"))
+			{
+				depth -= token.text.length();
+
+				if(depth <= 0)
+					return depth == 0 ? i : -1;
+			}
+			else if(!token.isIdentifier() && !SourceTokens.PRIMITIVE_TYPES.contains(token.text)
+			     && !token.isKeyword("extends") && !token.isKeyword("super")
+			     && !List.of(".", ",", "?", "&", "[", "]", "@").contains(token.text))
+				return -1;
+		}
+
+		return -1;
+	}
+
+	private static int matchingParenthesis(List<SourceTokens.Token> tokens, int index, int direction)
+	{
+		var depth = 0;
+
+		for(var i = index; i >= 0 && i < tokens.size(); i += direction)
+		{
+			if(tokens.get(i).is("(") || tokens.get(i).is(")"))
+				depth += tokens.get(i).is(direction > 0 ? "(" : ")") ? 1 : -1;
+
+			if(depth == 0)
+				return i;
+		}
+
+		return -1;
+	}
+
+	// 'f(a < b, c > d)' passes two comparisons, while '(Map<K, V> m)' declares a parameter of a generic type
+	private static boolean isParameterList(List<SourceTokens.Token> tokens, int start, int end)
+	{
+		var open = start;
+		var depth = 0;
+
+		for(; open >= 0; --open)
+		{
+			if(tokens.get(open).is(")"))
+				++depth;
+			else if(tokens.get(open).is("(") && depth-- == 0)
+				break;
+		}
+
+		if(open < 0)
+			return false;
+
+		var close = matchingParenthesis(tokens, open, 1);
+
+		if(close != -1 && close + 1 < tokens.size())
+		{
+			var next = tokens.get(close + 1);
+
+			if(next.is("{") || next.is("->") || next.isKeyword("throws"))
+				return true;
+		}
+
+		// a method declaration: the name of the method follows its return type
+		return open >= 2 && tokens.get(open - 1).isIdentifier()
+		    && (tokens.get(open - 2).isIdentifier() || tokens.get(open - 2).is(">") || tokens.get(open - 2).is("]")
+		        || SourceTokens.PRIMITIVE_TYPES.contains(tokens.get(open - 2).text));
+	}
+
+	// whether '<' at the given index opens type arguments, returns the index of the closing '>' if so
+	private static int genericEnd(List<SourceTokens.Token> tokens, int index)
+	{
+		// only operands end with these, type arguments follow types, dots or modifiers
+		var previous = index == 0 ? null : tokens.get(index - 1);
+
+		if(previous == null || previous.kind == SourceTokens.Kind.LITERAL || List.of(")", "]", "++", "--").contains(previous.text)
+		|| List.of("this", "super", "null", "true", "false").contains(previous.text))
+			return -1;
+
+		var end = typeArgumentsEnd(tokens, index);
+
+		if(end == -1)
+			return -1;
+
+		var hasComma = false;
+
+		for(var i = index; i != end; ++i)
+			hasComma |= tokens.get(i).is(",");
+
+		var ambiguous = hasComma && end + 2 < tokens.size() && tokens.get(end + 1).isIdentifier()
+		                && (tokens.get(end + 2).is(",") || tokens.get(end + 2).is(")"));
+
+		return !ambiguous || isParameterList(tokens, index, end) ? end : -1;
+	}
+
+	// tokens that bind less tightly than comparisons, i.e. that end an operand
+	private static final List<String> OPERAND_BOUNDARIES = List.of("(", ")", "[", "]", "{", "}", ",", ";", "=", "?", ":", "&&", "||", "->", "return");
+
+	private static boolean isBoundary(List<SourceTokens.Token> tokens, int index)
+	{
+		return index < 0 || index >= tokens.size() || OPERAND_BOUNDARIES.contains(tokens.get(index).text);
+	}
+
+	// whether the operand to the left or right of the comparison at the given index consists of a literal only
+	private static boolean isLiteralOperand(List<SourceTokens.Token> tokens, int index, int direction)
+	{
+		var i = index + direction;
+
+		if(direction > 0 && i < tokens.size() && (tokens.get(i).is("-") || tokens.get(i).is("+")))
+			++i;
+
+		if(i < 0 || i >= tokens.size() || tokens.get(i).kind != SourceTokens.Kind.LITERAL)
+			return false;
+
+		return isBoundary(tokens, i + direction);
+	}
+
+	// the indices of the tokens that open or close type arguments
+	private static Set<Integer> typeArgumentBrackets(List<SourceTokens.Token> tokens)
+	{
+		var brackets = new HashSet<Integer>();
+
+		for(var i = 0; i < tokens.size(); ++i)
+		{
+			if(!tokens.get(i).is("<") || brackets.contains(i))
+				continue;
+
+			var end = genericEnd(tokens, i);
+
+			if(end == -1)
+				continue;
+
+			// nested type arguments are part of the outer ones
+			for(var j = i; j <= end; ++j)
+				if(tokens.get(j).is("<") || tokens.get(j).text.startsWith(">"))
+					brackets.add(j);
+		}
+
+		return brackets;
+	}
+
+	// a comparison of two operands whose types may implement Comparable, comparing a reference type to a literal
+	// does not compile without operator methods either
+	private static boolean mayCompareObjects(List<SourceTokens.Token> tokens, Set<Integer> brackets)
+	{
+		for(var i = 0; i < tokens.size(); ++i)
+		{
+			var token = tokens.get(i);
+
+			if(brackets.contains(i) || !List.of("<", ">", "<=", ">=").contains(token.text))
+				continue;
+
+			if(!isLiteralOperand(tokens, i, -1) && !isLiteralOperand(tokens, i, 1))
+				return true;
+		}
+
+		return false;
+	}
+
+	// 'f(x)' invokes a variable of functional interface type if 'f' is a variable, which it can only be if it is
+	// mentioned as something other than a method, or if it is declared in a supertype or imported on demand
+	private static boolean mayInvokeVariables(List<SourceTokens.Token> tokens, Set<Integer> brackets)
+	{
+		var calls = new HashSet<String>();
+		var methods = new HashSet<String>();
+		var others = new HashSet<String>();
+		var types = new HashSet<String>();
+		var inheritsNames = false;
+
+		for(var i = 0; i != tokens.size(); ++i)
+		{
+			var token = tokens.get(i);
+
+			if((token.isKeyword("class") || token.isKeyword("enum") || token.is("record")) && i + 1 != tokens.size())
+				types.add(tokens.get(i + 1).text);
+
+			if(token.isKeyword("extends") || token.isKeyword("implements"))
+				inheritsNames = true;
+
+			if(token.isKeyword("import") && i + 1 != tokens.size() && tokens.get(i + 1).isKeyword("static"))
+			{
+				for(var j = i; j != tokens.size() && !tokens.get(j).is(";"); ++j)
+					inheritsNames |= tokens.get(j).is("*");
+			}
+
+			if(!token.isIdentifier())
+				continue;
+
+			var previous = i == 0 ? null : tokens.get(i - 1);
+
+			if(i + 1 == tokens.size() || !tokens.get(i + 1).is("("))
+				others.add(token.text);
+			else if(previous != null && (previous.isIdentifier() || previous.is("]") || brackets.contains(i - 1)
+			        || SourceTokens.PRIMITIVE_TYPES.contains(previous.text) || List.of("public", "protected", "private").contains(previous.text)))
+				methods.add(token.text);
+			else if(previous == null || !(previous.is(".") || previous.is("::") || previous.is("@") || previous.isKeyword("new")))
+				calls.add(token.text);
+		}
+
+		// constructors without modifiers look like invocations
+		calls.removeAll(types);
+
+		for(var call : calls)
+		{
+			if(others.contains(call) || inheritsNames && !methods.contains(call))
+				return true;
+		}
+
+		return false;
+	}
+
+	private boolean mayMentionOperatorTypes(List<SourceTokens.Token> tokens)
+	{
+		return tokens.stream()
+		             .filter(SourceTokens.Token::isIdentifier)
+		             .anyMatch(t -> operatorTypeNames.contains(t.text) || isOperatorMethodName(t.text));
+	}
+
+	public boolean mayContainOperators(String source)
+	{
+		checked.incrementAndGet();
+
+		var tokens = SourceTokens.tokenize(source);
+
+		if(mayMentionOperatorTypes(tokens))
+			return true;
+
+		var brackets = typeArgumentBrackets(tokens);
+
+		if(mayCompareObjects(tokens, brackets) || mayInvokeVariables(tokens, brackets))
+			return true;
+
+		skipped.incrementAndGet();
+		return false;
+	}
+
+	public String summary()
+	{
+		return String.format("javaopc: %s of %s source files contain no operators and were passed on unchanged",
+		                     skipped.get(), checked.get());
+	}
+}
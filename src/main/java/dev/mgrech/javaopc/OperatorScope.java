@@ -0,0 +1,234 @@
+package dev.mgrech.javaopc;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.DataKey;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.AnnotationDeclaration;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.EnumConstantDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.ObjectCreationExpr;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
+import com.github.javaparser.symbolsolver.javaparsermodel.declarations.JavaParserClassDeclaration;
+import com.github.javaparser.symbolsolver.javaparsermodel.declarations.JavaParserEnumDeclaration;
+import com.github.javaparser.symbolsolver.javaparsermodel.declarations.JavaParserInterfaceDeclaration;
+import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// what the operators of a file are resolved against, built once per file and worker when first needed
+// JavaParser resolves an unqualified invocation by walking the enclosing types, their supertypes and the static imports
+// of the file for every operator, so the names of the operator methods found there are collected once, and operators
+// that none of them declares are not looked up unqualified at all
+// a type from source continues the lookup with the enclosing types and imports of its own file, so the files of the
+// types from source that are reachable from the file, through supertypes or static imports, are included as well
+// the classes that qualify the invocations are looked up by their simple names once per type declaration, too
+class OperatorScope
+{
+	private static final DataKey<OperatorScope> OPERATOR_SCOPE = new DataKey<>() {};
+
+	private final CompilationUnit cu;
+	private final TypeSolver solver;
+	private final TypeMetadata metadata;
+
+	// null if some type could not be resolved, then every operator may be reachable
+	private Set<String> names;
+	private boolean collected = false;
+
+	// the names of the types declared inside methods, i.e. local classes and the members of local and anonymous classes,
+	// which JavaParser looks for in the whole enclosing method on every lookup of a type name in it
+	private Set<String> nestedTypeNames = null;
+
+	// the types names refer to in each type declaration, null if a name refers to no type
+	private final Map<Node, Map<String, Optional<ResolvedReferenceTypeDeclaration>>> typeNames = new IdentityHashMap<>();
+
+	private OperatorScope(CompilationUnit cu, TypeSolver solver, TypeMetadata metadata)
+	{
+		this.cu = cu;
+		this.solver = solver;
+		this.metadata = metadata;
+	}
+
+	static OperatorScope of(CompilationUnit cu, TypeSolver solver, TypeMetadata metadata)
+	{
+		if(!cu.containsData(OPERATOR_SCOPE))
+			cu.setData(OPERATOR_SCOPE, new OperatorScope(cu, solver, metadata));
+
+		return cu.getData(OPERATOR_SCOPE);
+	}
+
+	boolean mayResolve(String methodName)
+	{
+		if(!collected)
+		{
+			names = collect(cu, solver, metadata);
+			collected = true;
+		}
+
+		return names == null || names.contains(methodName);
+	}
+
+	// the type declaration in which the given type name refers to the same type everywhere the location could be,
+	// null if what it refers to depends on where in the declaration the location is
+	Node typeNameScope(Expression location, String name)
+	{
+		if(nestedTypeNames == null)
+		{
+			nestedTypeNames = cu.findAll(TypeDeclaration.class)
+			                    .stream()
+			                    .map(t -> (TypeDeclaration<?>)t)
+			                    .filter(t -> !isMemberType(t))
+			                    .map(t -> t.getNameAsString())
+			                    .collect(Collectors.toSet());
+		}
+
+		var dot = name.indexOf('.');
+
+		if(nestedTypeNames.contains(dot == -1 ? name : name.substring(0, dot)))
+			return null;
+
+		for(var node = location.getParentNode().orElse(null); node != null; node = node.getParentNode().orElse(null))
+		{
+			// object creations look names up in the type of their scope, enum constants may have bodies of their own
+			if(node instanceof ObjectCreationExpr || node instanceof EnumConstantDeclaration)
+				return null;
+
+			if(node instanceof CallableDeclaration && ((CallableDeclaration<?>)node).getTypeParameters().stream().anyMatch(p -> p.getNameAsString().equals(name)))
+				return null;
+
+			if(node instanceof TypeDeclaration)
+				return node;
+		}
+
+		return null;
+	}
+
+	// the types names resolve to in a scope returned by typeNameScope
+	Map<String, Optional<ResolvedReferenceTypeDeclaration>> typeNames(Node scope)
+	{
+		return typeNames.computeIfAbsent(scope, s -> new HashMap<>());
+	}
+
+	private static boolean isMemberType(TypeDeclaration<?> type)
+	{
+		var parent = type.getParentNode().orElse(null);
+		return parent instanceof CompilationUnit || parent instanceof TypeDeclaration && isMemberType((TypeDeclaration<?>)parent);
+	}
+
+	private static Set<String> collect(CompilationUnit cu, TypeSolver solver, TypeMetadata metadata)
+	{
+		var names = new HashSet<String>();
+
+		// nodes compare by structure, a file is visited once even if another one has the same contents
+		var visited = Collections.newSetFromMap(new IdentityHashMap<CompilationUnit, Boolean>());
+		var pending = new ArrayDeque<CompilationUnit>();
+		pending.add(cu);
+
+		try
+		{
+			while(!pending.isEmpty())
+			{
+				var file = pending.remove();
+
+				if(!visited.add(file))
+					continue;
+
+				for(var method : file.findAll(MethodDeclaration.class))
+				{
+					if(Operators.lookup(method.getNameAsString()) != null)
+						names.add(method.getNameAsString());
+				}
+
+				var facade = JavaParserFacade.get(solver);
+
+				for(TypeDeclaration<?> type : file.findAll(TypeDeclaration.class))
+				{
+					if(type instanceof AnnotationDeclaration)
+						continue;
+
+					for(var ancestor : facade.getTypeDeclaration((Node)type).getAllAncestors())
+					{
+						if(!addType(ancestor.getTypeDeclaration(), names, pending, metadata))
+							return null;
+					}
+				}
+
+				for(var creation : file.findAll(ObjectCreationExpr.class, e -> e.getAnonymousClassBody().isPresent()))
+				{
+					for(var ancestor : facade.getTypeDeclaration(creation).getAllAncestors())
+					{
+						if(!addType(ancestor.getTypeDeclaration(), names, pending, metadata))
+							return null;
+					}
+				}
+
+				for(var importDecl : file.getImports())
+				{
+					if(!importDecl.isStatic())
+						continue;
+
+					if(!importDecl.isAsterisk())
+					{
+						// only invocations of the imported name are resolved in the imported class
+						var name = importDecl.getName().getIdentifier();
+
+						if(Operators.lookup(name) != null)
+							names.add(name);
+
+						continue;
+					}
+
+					if(!addType(solver.solveType(importDecl.getNameAsString()), names, pending, metadata))
+						return null;
+				}
+			}
+		}
+		catch(RuntimeException ex)
+		{
+			// e.g. an unknown supertype or imported class, resolving an invocation will report or ignore it
+			return null;
+		}
+
+		return names;
+	}
+
+	// adds the operators a type from a class file declares or inherits, or queues the file of a type from source,
+	// false if the type is neither
+	private static boolean addType(ResolvedReferenceTypeDeclaration decl, Set<String> names, ArrayDeque<CompilationUnit> pending, TypeMetadata metadata)
+	{
+		if(TypeMetadata.isCompiled(decl))
+		{
+			names.addAll(metadata == null ? TypeMetadata.collectOperatorMethods(decl) : metadata.operatorMethods(decl));
+			return true;
+		}
+
+		var file = sourceFile(decl);
+		file.ifPresent(pending::add);
+		return file.isPresent();
+	}
+
+	private static Optional<CompilationUnit> sourceFile(ResolvedReferenceTypeDeclaration decl)
+	{
+		if(decl instanceof JavaParserClassDeclaration)
+			return ((JavaParserClassDeclaration)decl).getWrappedNode().findCompilationUnit();
+
+		if(decl instanceof JavaParserInterfaceDeclaration)
+			return ((JavaParserInterfaceDeclaration)decl).getWrappedNode().findCompilationUnit();
+
+		if(decl instanceof JavaParserEnumDeclaration)
+			return ((JavaParserEnumDeclaration)decl).getWrappedNode().findCompilationUnit();
+
+		return Optional.empty();
+	}
+}
@@ -7,25 +7,39 @@ import com.github.javaparser.ast.stmt.BlockStmt;
 import com.github.javaparser.ast.stmt.ExpressionStmt;
 import com.github.javaparser.ast.stmt.Statement;
 import com.github.javaparser.ast.type.VarType;
-import com.github.javaparser.resolution.declarations.ResolvedMethodDeclaration;
 import com.github.javaparser.resolution.types.ResolvedReferenceType;
 import com.github.javaparser.resolution.types.ResolvedType;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class OperatorVisitor implements ExprRewritingVisitor
 {
+	// a fresh visitor is used for every file, so temporary names only depend on the file itself
+	// and rewriting the same source always yields the same text, which the rewrite cache relies on
 	private int tempVarCounter = 0;
 
+	// rewrites that modify a node instead of returning a replacement for the adapter
+	private boolean rewrittenInPlace = false;
+
+	public boolean hasRewrittenInPlace()
+	{
+		return rewrittenInPlace;
+	}
+
+	// builtin operands that can be told syntactically never need the symbol solver
+	private static boolean isSyntacticallyBuiltin(Expression expr)
+	{
+		return SyntacticTypes.kindOf(expr) != null;
+	}
+
 	private Expression rewriteCompoundAssignment(AssignExpr expr)
 	{
 		var binaryOp = expr.getOperator().toBinaryOperator().orElse(null);
 		assert binaryOp != null;
 
-		var leftType = expr.getTarget().calculateResolvedType();
-		var rightType = expr.getValue().calculateResolvedType();
+		var leftType = Attribution.typeOf(expr.getTarget());
+		var rightType = Attribution.typeOf(expr.getValue());
 
 		var binaryExpr = new BinaryExpr(expr.getTarget(), expr.getValue(), binaryOp);
 
@@ -141,7 +155,7 @@ public class OperatorVisitor implements ExprRewritingVisitor
 		case PREFIX_INCREMENT:
 		case PREFIX_DECREMENT:
 			{
-				var type = expr.getExpression().calculateResolvedType();
+				var type = Attribution.typeOf(expr.getExpression());
 
 				if(Types.isBuiltinType(type))
 					return null;
@@ -152,7 +166,7 @@ public class OperatorVisitor implements ExprRewritingVisitor
 		case POSTFIX_INCREMENT:
 		case POSTFIX_DECREMENT:
 			{
-				var type = expr.getExpression().calculateResolvedType();
+				var type = Attribution.typeOf(expr.getExpression());
 
 				if(Types.isBuiltinType(type))
 					return null;
@@ -166,10 +180,11 @@ public class OperatorVisitor implements ExprRewritingVisitor
 
 	private Expression rewriteComparison(BinaryExpr expr, ResolvedType leftType, ResolvedType rightType)
 	{
-		var leftComparable = Types.implementsComparable(leftType);
-		var rightComparable = Types.implementsComparable(rightType);
+		var metadata = Lookup.typeMetadata(expr);
+		var leftComparable = Types.implementsComparable(metadata, leftType);
+		var rightComparable = Types.implementsComparable(metadata, rightType);
 
-		if(leftComparable == null && rightComparable == null)
+		if(!leftComparable && !rightComparable)
 			return null;
 
 		var left = expr.getLeft();
@@ -177,7 +192,7 @@ public class OperatorVisitor implements ExprRewritingVisitor
 		var op = expr.getOperator();
 
 		// fallback: flip around if left operand does not support comparable
-		if(leftComparable == null)
+		if(!leftComparable)
 		{
 			var tmpType = leftType;
 			leftType = rightType;
@@ -255,17 +270,12 @@ public class OperatorVisitor implements ExprRewritingVisitor
 		if(type == null)
 			return null;
 
-		if(Types.isFunctionalInterface(type))
+		var functionalMethod = Types.functionalMethod(Lookup.typeMetadata(expr), type);
+
+		if(functionalMethod != null)
 		{
 			// obj.method(args...)
-
-			var methods = type.asReferenceType().getTypeDeclaration().getDeclaredMethods();
-			var abstractMethods = methods.stream()
-			                    .filter(ResolvedMethodDeclaration::isAbstract)
-			                    .collect(Collectors.toList());
-
-			assert abstractMethods.size() == 1;
-			return new MethodCallExpr(nameExpr, abstractMethods.get(0).getName(), expr.getArguments());
+			return new MethodCallExpr(nameExpr, functionalMethod, expr.getArguments());
 		}
 		else // T.opInvoke(obj, args...)
 		{
@@ -286,7 +296,7 @@ public class OperatorVisitor implements ExprRewritingVisitor
 		var arrayAccessExpr = (ArrayAccessExpr)expr.getTarget();
 
 		var op = expr.getOperator();
-		var subscriptedType = arrayAccessExpr.calculateResolvedType();
+		var subscriptedType = Attribution.typeOf(arrayAccessExpr);
 
 		if(!subscriptedType.isReferenceType())
 			return null;
@@ -324,8 +334,11 @@ public class OperatorVisitor implements ExprRewritingVisitor
 	@Override
 	public Expression visit(AssignExpr expr)
 	{
-		var leftType = expr.getTarget().calculateResolvedType();
-		var rightType = expr.getValue().calculateResolvedType();
+		if(isSyntacticallyBuiltin(expr.getTarget()) && isSyntacticallyBuiltin(expr.getValue()))
+			return null;
+
+		var leftType = Attribution.typeOf(expr.getTarget());
+		var rightType = Attribution.typeOf(expr.getValue());
 
 		// if we have an array access on the left side, we need to generate opSubscriptSet
 		// also rewrites compound assignment if necessary
@@ -368,7 +381,10 @@ public class OperatorVisitor implements ExprRewritingVisitor
 	@Override
 	public Expression visit(UnaryExpr expr)
 	{
-		var argType = expr.getExpression().calculateResolvedType();
+		if(SyntacticTypes.kindOf(expr.getExpression()) == SyntacticTypes.Kind.PRIMITIVE)
+			return null;
+
+		var argType = Attribution.typeOf(expr.getExpression());
 
 		if(!argType.isPrimitive())
 			return rewriteUnaryOperator(expr, argType);
@@ -379,8 +395,11 @@ public class OperatorVisitor implements ExprRewritingVisitor
 	@Override
 	public Expression visit(BinaryExpr expr)
 	{
-		var leftType = expr.getLeft().calculateResolvedType();
-		var rightType = expr.getRight().calculateResolvedType();
+		if(isSyntacticallyBuiltin(expr.getLeft()) && isSyntacticallyBuiltin(expr.getRight()))
+			return null;
+
+		var leftType = Attribution.typeOf(expr.getLeft());
+		var rightType = Attribution.typeOf(expr.getRight());
 
 		// we're interested in all binary expressions where:
 		// 1. at least one argument is a user-defined type, and
@@ -402,6 +421,11 @@ public class OperatorVisitor implements ExprRewritingVisitor
 	@Override
 	public Expression visit(MethodCallExpr expr)
 	{
+		// only 'f(x)' where 'f' names a variable can be an invocation operator, which rules out most calls
+		// without having to resolve them
+		if(expr.getScope().isPresent() || !VariableNames.mayNameVariable(expr))
+			return null;
+
 		// if the invocation is already valid, it's not an overloaded invocation
 		if(Lookup.resolveMethodInvocationInplace(expr) != null)
 			return null;
@@ -418,7 +442,7 @@ public class OperatorVisitor implements ExprRewritingVisitor
 		if(parent instanceof AssignExpr)
 			return null;
 
-		var leftType = expr.getName().calculateResolvedType();
+		var leftType = Attribution.typeOf(expr.getName());
 
 		// overloaded subscript only for user-defined types
 		if(Types.isBuiltinType(leftType))
@@ -430,7 +454,7 @@ public class OperatorVisitor implements ExprRewritingVisitor
 	@Override
 	public Expression visit(CastExpr expr)
 	{
-		var sourceType = expr.getExpression().calculateResolvedType();
+		var sourceType = Attribution.typeOf(expr.getExpression());
 		var targetType = expr.getType().resolve();
 
 		if(!Types.isBuiltinType(sourceType) || !Types.isBuiltinType(targetType))
@@ -457,7 +481,7 @@ public class OperatorVisitor implements ExprRewritingVisitor
 				continue;
 
 			var varType = syntaxType.resolve();
-			var initType = init.calculateResolvedType();
+			var initType = Attribution.typeOf(init);
 
 			// skip if we have a 'null' initializer
 			if(initType.isNull())
@@ -470,7 +494,11 @@ public class OperatorVisitor implements ExprRewritingVisitor
 			var conv = rewriteImplicitConversion(init, initType, varType);
 
 			if(conv != null)
+			{
 				variable.setInitializer(conv);
+				Attribution.invalidate(conv);
+				rewrittenInPlace = true;
+			}
 		}
 
 		return null;
@@ -0,0 +1,304 @@
+package dev.mgrech.javaopc;
+
+import javassist.ClassPath;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.zip.ZipFile;
+
+// the class files of the Java platform, read without loading any classes: from the runtime image of the running JDK,
+// or from its ct.sym for an older release, like javac does for --release
+// a platform is shared by the solvers of all workers and kept for as long as the process lives
+abstract class Platform implements ClassPath
+{
+	private static final Map<String, Platform> PLATFORMS = new ConcurrentHashMap<>();
+
+	// the classes of each package, by their names relative to the package as the solver looks them up,
+	// e.g. 'Map.Entry' to 'Map$Entry'
+	private final Map<String, Map<String, String>> classes = new ConcurrentHashMap<>();
+
+	// the release the platform was read for, or null for the running JDK
+	static Platform of(String release)
+	{
+		if(release != null && Integer.parseInt(release) == Runtime.version().feature())
+			release = null;
+
+		return PLATFORMS.computeIfAbsent(release == null ? "" : release, r -> r.isEmpty() ? new RuntimeImage() : new SymbolFile(Integer.parseInt(r)));
+	}
+
+	abstract boolean isPackage(String name);
+
+	// the class names of a package, relative to the package and with '$' separating nested classes
+	abstract Set<String> readClassNames(String packageName);
+
+	// null if there is no class of this name
+	abstract byte[] readClassFile(String binaryName);
+
+	// null if there is no class of this name
+	abstract URL classFileUrl(String binaryName);
+
+	private Map<String, String> classes(String packageName)
+	{
+		return classes.computeIfAbsent(packageName, p -> readClassNames(p).stream().collect(Collectors.toMap(n -> n.replace('$', '.'), n -> n, (a, b) -> a)));
+	}
+
+	// the binary name of the class of the given name, which may denote a nested class, or null if there is none
+	String binaryName(String name)
+	{
+		for(var dot = name.lastIndexOf('.'); dot != -1; dot = name.lastIndexOf('.', dot - 1))
+		{
+			var packageName = name.substring(0, dot);
+
+			if(!isPackage(packageName))
+				continue;
+
+			var className = classes(packageName).get(name.substring(dot + 1));
+
+			if(className != null)
+				return packageName + "." + className;
+		}
+
+		return null;
+	}
+
+	@Override
+	public InputStream openClassfile(String binaryName)
+	{
+		var classFile = readClassFile(binaryName);
+		return classFile == null ? null : new ByteArrayInputStream(classFile);
+	}
+
+	@Override
+	public URL find(String binaryName)
+	{
+		return classFileUrl(binaryName);
+	}
+
+	private static String packageOf(String binaryName)
+	{
+		var dot = binaryName.lastIndexOf('.');
+		return dot == -1 ? "" : binaryName.substring(0, dot);
+	}
+
+	// the modules of the running JDK, through the jrt file system
+	private static class RuntimeImage extends Platform
+	{
+		private final Path root = FileSystems.getFileSystem(URI.create("jrt:/")).getPath("/");
+
+		private final Set<String> packages;
+
+		// the modules containing each package, listed when the package is first looked in
+		private final Map<String, Set<String>> modules = new ConcurrentHashMap<>();
+
+		RuntimeImage()
+		{
+			try(var names = Files.list(root.resolve("packages")))
+			{
+				packages = names.map(p -> p.getFileName().toString()).collect(Collectors.toSet());
+			}
+			catch(IOException ex)
+			{
+				throw new UncheckedIOException(ex);
+			}
+		}
+
+		private Set<String> modules(String packageName)
+		{
+			if(!packages.contains(packageName))
+				return Set.of();
+
+			return modules.computeIfAbsent(packageName, p ->
+			{
+				try(var modules = Files.list(root.resolve("packages").resolve(p)))
+				{
+					return modules.map(m -> m.getFileName().toString()).collect(Collectors.toSet());
+				}
+				catch(IOException ex)
+				{
+					throw new UncheckedIOException(ex);
+				}
+			});
+		}
+
+		private Path classFilePath(String binaryName)
+		{
+			var packageName = packageOf(binaryName);
+			var fileName = binaryName.substring(binaryName.lastIndexOf('.') + 1) + ".class";
+
+			for(var module : modules(packageName))
+			{
+				var path = root.resolve("modules").resolve(module).resolve(packageName.replace('.', '/')).resolve(fileName);
+
+				if(Files.exists(path))
+					return path;
+			}
+
+			return null;
+		}
+
+		@Override
+		boolean isPackage(String name)
+		{
+			return packages.contains(name);
+		}
+
+		@Override
+		Set<String> readClassNames(String packageName)
+		{
+			var result = new HashSet<String>();
+
+			for(var module : modules(packageName))
+			{
+				try(var files = Files.list(root.resolve("modules").resolve(module).resolve(packageName.replace('.', '/'))))
+				{
+					files.map(f -> f.getFileName().toString())
+					     .filter(f -> f.endsWith(".class"))
+					     .forEach(f -> result.add(f.substring(0, f.length() - ".class".length())));
+				}
+				catch(IOException ex)
+				{
+					throw new UncheckedIOException(ex);
+				}
+			}
+
+			return result;
+		}
+
+		@Override
+		byte[] readClassFile(String binaryName)
+		{
+			var path = classFilePath(binaryName);
+
+			try
+			{
+				return path == null ? null : Files.readAllBytes(path);
+			}
+			catch(IOException ex)
+			{
+				throw new UncheckedIOException(ex);
+			}
+		}
+
+		@Override
+		URL classFileUrl(String binaryName)
+		{
+			var path = classFilePath(binaryName);
+
+			try
+			{
+				return path == null ? null : path.toUri().toURL();
+			}
+			catch(MalformedURLException ex)
+			{
+				throw new RuntimeException(ex);
+			}
+		}
+	}
+
+	// the signatures of an older release in lib/ct.sym, whose top-level directories are named after the releases
+	// they apply to, one character per release, e.g. '9A' for 9 and 10, and contain a directory per module
+	private static class SymbolFile extends Platform
+	{
+		private final Path path = Path.of(System.getProperty("java.home"), "lib", "ct.sym");
+		private final ZipFile file;
+
+		// the entries of the classes of each package, by their binary names
+		private final Map<String, Map<String, String>> packages = new HashMap<>();
+
+		SymbolFile(int release)
+		{
+			var letter = Character.toUpperCase(Character.forDigit(release, Character.MAX_RADIX));
+
+			try
+			{
+				file = new ZipFile(path.toFile());
+			}
+			catch(IOException ex)
+			{
+				throw new UncheckedIOException(ex);
+			}
+
+			for(var entries = file.entries(); entries.hasMoreElements();)
+			{
+				var name = entries.nextElement().getName();
+				var parts = name.split("/");
+
+				if(parts.length < 3 || !name.endsWith(".sig") || parts[0].indexOf(letter) == -1)
+					continue;
+
+				// skips the releases and the module
+				var binaryName = String.join(".", Arrays.asList(parts).subList(2, parts.length));
+				binaryName = binaryName.substring(0, binaryName.length() - ".sig".length());
+				packages.computeIfAbsent(packageOf(binaryName), p -> new HashMap<>()).put(binaryName, name);
+			}
+
+			if(release < 7 || release > Runtime.version().feature() || !packages.containsKey("java.lang"))
+				throw new IllegalArgumentException("unsupported release: " + release);
+		}
+
+		private String entryName(String binaryName)
+		{
+			return packages.getOrDefault(packageOf(binaryName), Map.of()).get(binaryName);
+		}
+
+		@Override
+		boolean isPackage(String name)
+		{
+			return packages.containsKey(name);
+		}
+
+		@Override
+		Set<String> readClassNames(String packageName)
+		{
+			return packages.get(packageName).keySet().stream().map(n -> n.substring(packageName.length() + 1)).collect(Collectors.toSet());
+		}
+
+		@Override
+		byte[] readClassFile(String binaryName)
+		{
+			var entryName = entryName(binaryName);
+
+			if(entryName == null)
+				return null;
+
+			try(var in = file.getInputStream(file.getEntry(entryName)))
+			{
+				return in.readAllBytes();
+			}
+			catch(IOException ex)
+			{
+				throw new UncheckedIOException(ex);
+			}
+		}
+
+		@Override
+		URL classFileUrl(String binaryName)
+		{
+			var entryName = entryName(binaryName);
+
+			try
+			{
+				return entryName == null ? null : new URL("jar:" + path.toUri() + "!/" + entryName);
+			}
+			catch(MalformedURLException ex)
+			{
+				throw new RuntimeException(ex);
+			}
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package dev.mgrech.javaopc;
+
+import com.github.javaparser.resolution.UnsolvedSymbolException;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.symbolsolver.model.resolution.SymbolReference;
+import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
+import com.github.javaparser.symbolsolver.reflectionmodel.ReflectionFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// resolves the types of the Java platform, where ReflectionTypeSolver tries to load every name it is asked for
+// the platform tells which types exist, without loading classes, so that names of other types, e.g. those of
+// the class path, are answered without a failing class lookup, and for an older release, types added after it
+// are not found, as with javac --release
+// the types that do exist are modelled by reflection like ReflectionTypeSolver does, but without initializing
+// their classes, and every name resolves to the same declaration
+// the Javassist model that could read them from their class files instead gets assignability between JDK types
+// wrong, so the members of the types are those of the JDK javaopc runs on, even for an older release
+public class PlatformTypeSolver implements TypeSolver
+{
+	private final Platform platform;
+
+	// like the solvers themselves, the declarations belong to a single worker
+	private final Map<String, SymbolReference<ResolvedReferenceTypeDeclaration>> found = new HashMap<>();
+
+	private TypeSolver parent = null;
+
+	PlatformTypeSolver(Platform platform)
+	{
+		this.platform = platform;
+	}
+
+	// the platform of the running JDK
+	public PlatformTypeSolver()
+	{
+		this((String)null);
+	}
+
+	// the platform of the given release, as passed to javac --release
+	public PlatformTypeSolver(String release)
+	{
+		this(Platform.of(release));
+	}
+
+	@Override
+	public TypeSolver getParent()
+	{
+		return parent;
+	}
+
+	@Override
+	public void setParent(TypeSolver parent)
+	{
+		this.parent = parent;
+	}
+
+	private SymbolReference<ResolvedReferenceTypeDeclaration> solve(String name)
+	{
+		var binaryName = platform.binaryName(name);
+
+		if(binaryName == null)
+			return SymbolReference.unsolved(ResolvedReferenceTypeDeclaration.class);
+
+		try
+		{
+			var type = Class.forName(binaryName, false, ClassLoader.getSystemClassLoader());
+			return SymbolReference.solved(ReflectionFactory.typeDeclarationFor(type, getRoot()));
+		}
+		catch(ClassNotFoundException | LinkageError ex)
+		{
+			// e.g. a class of a module that is not part of the running JVM
+			return SymbolReference.unsolved(ResolvedReferenceTypeDeclaration.class);
+		}
+	}
+
+	@Override
+	public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name)
+	{
+		var ref = found.get(name);
+
+		// not computeIfAbsent, building a declaration may look up other types of the platform
+		if(ref == null)
+			found.put(name, ref = solve(name));
+
+		return ref;
+	}
+
+	@Override
+	public ResolvedReferenceTypeDeclaration solveType(String name) throws UnsolvedSymbolException
+	{
+		var ref = tryToSolveType(name);
+
+		if(!ref.isSolved())
+			throw new UnsolvedSymbolException(name);
+
+		return ref.getCorrespondingDeclaration();
+	}
+}
@@ -0,0 +1,51 @@
+package dev.mgrech.javaopc;
+
+import com.github.javaparser.ast.DataKey;
+import com.github.javaparser.ast.expr.Expression;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// limits the candidates a single operator site may probe and the time it may spend doing so, so one pathological
+// expression can't stall a build, a site exceeding its budget stops trying conversions of its arguments and
+// is resolved from the candidates taking its arguments as they are, which are always probed in full
+// the sites that exceeded the budget are reported as warnings after the build, and their files are not put in the rewrite cache
+// a site resolved that way may call another overload than it would otherwise, or none at all, so there is only a budget
+// if one is asked for with --resolution-budget or --resolution-timeout
+class ResolutionBudget
+{
+	// the budget of the build the file being rewritten belongs to, if resolutions are limited
+	static final DataKey<ResolutionBudget> KEY = new DataKey<>() {};
+
+	// limits of zero are no limits
+	private final long maxProbes;
+	private final long maxNanos;
+
+	private final List<String> warnings = new ArrayList<>();
+
+	ResolutionBudget(long maxProbes, long maxMillis)
+	{
+		this.maxProbes = maxProbes;
+		this.maxNanos = TimeUnit.MILLISECONDS.toNanos(maxMillis);
+	}
+
+	boolean isExceeded(long probes, long start)
+	{
+		return (maxProbes != 0 && probes >= maxProbes) || (maxNanos != 0 && System.nanoTime() - start >= maxNanos);
+	}
+
+	synchronized void exceeded(Expression expr, String operator, long probes, long start)
+	{
+		FileMetrics.exceededBudget(expr);
+		warnings.add(String.format(Locale.ROOT, "javaopc: warning: resolving %s at %s exceeded the budget after %s candidates "
+		                                        + "and %.1f ms, conversions of its arguments were not considered",
+		                           operator, ResolutionProfile.location(expr), probes, (System.nanoTime() - start) / 1e6));
+	}
+
+	synchronized List<String> warnings()
+	{
+		return new ArrayList<>(warnings);
+	}
+}
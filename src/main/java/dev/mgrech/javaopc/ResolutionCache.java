@@ -0,0 +1,30 @@
+package dev.mgrech.javaopc;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// the outcomes of operator resolutions of a single build, shared between all of its workers
+// keys identify the operator, the types of its operands and the scope it is resolved in,
+// and misses are cached as well, since they are the most expensive resolutions
+// types from source may change between builds, so what is known about types is kept here as well
+public class ResolutionCache
+{
+	private final Map<String, Lookup.Resolution> resolutions = new ConcurrentHashMap<>();
+	private final TypeMetadata types = new TypeMetadata();
+
+	TypeMetadata types()
+	{
+		return types;
+	}
+
+	Lookup.Resolution get(String key)
+	{
+		return resolutions.get(key);
+	}
+
+	// two workers may resolve the same key at the same time, both arrive at the same outcome
+	void put(String key, Lookup.Resolution resolution)
+	{
+		resolutions.putIfAbsent(key, resolution);
+	}
+}
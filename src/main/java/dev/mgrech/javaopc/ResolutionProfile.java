@@ -0,0 +1,127 @@
+package dev.mgrech.javaopc;
+
+import com.github.javaparser.ast.DataKey;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.expr.Expression;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+// the operator sites of a build that took longest to resolve, for --profile-resolution
+// a site is timed from collecting its candidates to picking one of them, i.e. including the conversions of its
+// arguments, the permutations of converted arguments tried and the disambiguation, only the slowest are kept
+class ResolutionProfile
+{
+	// the profile of the build the file being rewritten belongs to, if resolutions are profiled
+	static final DataKey<ResolutionProfile> KEY = new DataKey<>() {};
+
+	static class Site
+	{
+		final String location;
+		final String operator;
+
+		private final FileMetrics metrics;
+		private final long start;
+
+		long nanos = 0;
+		long probes = 0;
+		long permutations = 0;
+
+		private Site(Expression expr, String operator, FileMetrics metrics)
+		{
+			this.location = location(expr);
+			this.operator = operator;
+			this.metrics = metrics;
+
+			// the counts of the site are what the counts of its file grow by while it is resolved
+			if(metrics != null)
+			{
+				probes = -metrics.count(FileMetrics.Counter.CANDIDATE_PROBES);
+				permutations = -metrics.count(FileMetrics.Counter.CONVERSION_PERMUTATIONS);
+			}
+
+			this.start = System.nanoTime();
+		}
+	}
+
+	// the file, line and column of an operator site
+	static String location(Expression expr)
+	{
+		// expressions synthesized while rewriting, e.g. the operation of a compound assignment, are located at the
+		// closest node that comes from the source
+		Node node = expr;
+
+		while(node != null && node.getBegin().isEmpty())
+			node = node.getParentNode().orElse(null);
+
+		var file = expr.findCompilationUnit().filter(cu -> cu.containsData(FileMetrics.KEY)).map(cu -> cu.getData(FileMetrics.KEY).file());
+		var position = node == null ? "unknown position" : String.format("line %s, column %s", node.getBegin().get().line,
+		                                                                  node.getBegin().get().column);
+
+		return file.map(name -> name + " " + position).orElse(position);
+	}
+
+	private final int limit;
+	private final PriorityQueue<Site> slowest = new PriorityQueue<>(Comparator.comparingLong(site -> site.nanos));
+
+	private long sites = 0;
+	private long nanos = 0;
+
+	ResolutionProfile(int limit)
+	{
+		this.limit = limit;
+	}
+
+	Site begin(Expression expr, String operator, FileMetrics metrics)
+	{
+		return new Site(expr, operator, metrics);
+	}
+
+	synchronized void end(Site site)
+	{
+		site.nanos = System.nanoTime() - site.start;
+
+		if(site.metrics != null)
+		{
+			site.probes += site.metrics.count(FileMetrics.Counter.CANDIDATE_PROBES);
+			site.permutations += site.metrics.count(FileMetrics.Counter.CONVERSION_PERMUTATIONS);
+		}
+
+		++sites;
+		nanos += site.nanos;
+		slowest.add(site);
+
+		if(slowest.size() > limit)
+			slowest.remove();
+	}
+
+	private static String millis(long nanos)
+	{
+		return String.format(Locale.ROOT, "%.1f ms", nanos / 1e6);
+	}
+
+	synchronized String report()
+	{
+		var sorted = new ArrayList<>(slowest);
+		sorted.sort(Comparator.comparingLong((Site site) -> site.nanos).reversed());
+
+		var report = new StringBuilder();
+		report.append(String.format("javaopc: the %s slowest of %s operator resolutions, %s of %s resolving operators",
+		                            sorted.size(), sites, millis(sorted.stream().mapToLong(site -> site.nanos).sum()), millis(nanos)));
+
+		if(sorted.isEmpty())
+			return report.toString();
+
+		report.append(String.format("%n%12s %8s %12s  %-20s %s", "time", "probes", "permutations", "operator", "site"));
+
+		for(var site : sorted)
+		{
+			report.append(String.format("%n%12s %8s %12s  %-20s %s", millis(site.nanos), site.probes, site.permutations, site.operator,
+			                            site.location));
+		}
+
+		return report.toString();
+	}
+}
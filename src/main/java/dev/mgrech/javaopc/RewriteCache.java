@@ -0,0 +1,289 @@
+package dev.mgrech.javaopc;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.InitializerDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.printer.PrettyPrinter;
+import com.github.javaparser.printer.PrettyPrinterConfiguration;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class RewriteCache
+{
+	private final Path directory;
+	private final String fingerprint;
+
+	// fingerprints of dependency files are computed at most once per build
+	private final Map<Path, String> apiFingerprints = new ConcurrentHashMap<>();
+
+	// the release is that of javac --release, or null when compiling for the running JDK
+	public RewriteCache(Path directory, List<Path> classPath, String release)
+	{
+		this.directory = directory;
+		this.fingerprint = hash(versionFingerprint() + "\0" + release + "\0" + classPathFingerprint(classPath, directory.toAbsolutePath()));
+	}
+
+	private static MessageDigest sha256()
+	{
+		try
+		{
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch(NoSuchAlgorithmException ex)
+		{
+			throw new AssertionError(ex);
+		}
+	}
+
+	static String hash(String text)
+	{
+		var digest = sha256().digest(text.getBytes(StandardCharsets.UTF_8));
+		var builder = new StringBuilder();
+
+		for(var b : digest)
+			builder.append(String.format("%02x", b));
+
+		return builder.toString();
+	}
+
+	private static String fileFingerprint(Path root, Path file)
+	{
+		try
+		{
+			return root.relativize(file) + ":" + Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis();
+		}
+		catch(IOException ex)
+		{
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	// identifies a jar by its size and modification time
+	// a source directory is only identified by the names of its files, since edits to the files
+	// themselves are tracked per cache entry for the files that actually depend on them
+	static String pathFingerprint(Path path, Path excluded)
+	{
+		if(!Files.exists(path))
+			return path + ":missing";
+
+		if(!Files.isDirectory(path))
+			return path + ":" + fileFingerprint(path.getParent() == null ? path : path.getParent(), path);
+
+		try(Stream<Path> files = Files.walk(path))
+		{
+			return path + ":" + files.filter(f -> f.toString().endsWith(".java") && !f.startsWith(excluded))
+			                         .map(f -> path.relativize(f).toString())
+			                         .sorted()
+			                         .collect(Collectors.joining(","));
+		}
+		catch(IOException ex)
+		{
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	private static String classPathFingerprint(List<Path> classPath, Path cacheDirectory)
+	{
+		return classPath.stream()
+		                .map(p -> pathFingerprint(p.toAbsolutePath(), cacheDirectory))
+		                .collect(Collectors.joining(";"));
+	}
+
+	// rewritten output depends on the javaopc build that produced it and on the JDK that resolves platform types
+	private static String versionFingerprint()
+	{
+		var version = System.getProperty("java.version") + ":" + System.getProperty("java.home");
+
+		try
+		{
+			var codeSource = RewriteCache.class.getProtectionDomain().getCodeSource();
+
+			if(codeSource == null)
+				return version;
+
+			var location = Paths.get(codeSource.getLocation().toURI());
+
+			// when running from a class directory rather than a jar, the class files are what identifies the build
+			if(Files.isDirectory(location))
+				return version + ":" + classDirectoryFingerprint(location);
+
+			return version + ":" + pathFingerprint(location, null);
+		}
+		catch(URISyntaxException ex)
+		{
+			return version;
+		}
+	}
+
+	private static String classDirectoryFingerprint(Path path)
+	{
+		try(Stream<Path> files = Files.walk(path))
+		{
+			return files.filter(f -> f.toString().endsWith(".class"))
+			            .map(f -> fileFingerprint(path, f))
+			            .sorted()
+			            .collect(Collectors.joining(","));
+		}
+		catch(IOException ex)
+		{
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	// identifies the declarations of a source file without the method bodies and initializers,
+	// so that only changes which can affect how dependent files are rewritten invalidate them
+	private static String computeApiFingerprint(Path file)
+	{
+		String text;
+
+		try
+		{
+			text = Files.readString(file);
+		}
+		catch(IOException ex)
+		{
+			return "missing";
+		}
+
+		var parser = new JavaParser(new ParserConfiguration().setLanguageLevel(ParserConfiguration.LanguageLevel.BLEEDING_EDGE));
+		var cu = parser.parse(text).getResult().orElse(null);
+
+		if(cu == null)
+			return hash(text);
+
+		cu.findAll(MethodDeclaration.class).forEach(MethodDeclaration::removeBody);
+		cu.findAll(ConstructorDeclaration.class).forEach(c -> c.setBody(new BlockStmt()));
+		cu.findAll(InitializerDeclaration.class).forEach(Node::remove);
+		cu.findAll(FieldDeclaration.class).forEach(f -> f.getVariables().forEach(VariableDeclarator::removeInitializer));
+
+		var printer = new PrettyPrinter(new PrettyPrinterConfiguration().setPrintComments(false));
+		return hash(printer.print(cu));
+	}
+
+	private String apiFingerprint(Path file)
+	{
+		return apiFingerprints.computeIfAbsent(file.toAbsolutePath(), RewriteCache::computeApiFingerprint);
+	}
+
+	private Path entryPath(String source)
+	{
+		var key = hash(fingerprint + "\0" + source);
+		return directory.resolve(key.substring(0, 2)).resolve(key.substring(2) + ".rewrite");
+	}
+
+	// an entry starts with the number of dependencies, followed by one line per dependency
+	// consisting of its fingerprint and its path, followed by the rewritten source
+	public String get(String source)
+	{
+		String entry;
+
+		try
+		{
+			entry = Files.readString(entryPath(source));
+		}
+		catch(IOException ex)
+		{
+			// a missing or unreadable entry means the file is simply rewritten again
+			return null;
+		}
+
+		var lines = entry.split("\n", -1);
+		int count;
+
+		try
+		{
+			count = Integer.parseInt(lines[0]);
+		}
+		catch(NumberFormatException ex)
+		{
+			return null;
+		}
+
+		// a damaged entry, e.g. one written by a different javaopc build, is treated like a missing one
+		if(count < 0 || count >= lines.length)
+			return null;
+
+		for(var i = 1; i <= count; ++i)
+		{
+			var separator = lines[i].indexOf(' ');
+
+			if(separator < 0)
+				return null;
+
+			var dependencyFingerprint = lines[i].substring(0, separator);
+			Path dependency;
+
+			try
+			{
+				dependency = Paths.get(lines[i].substring(separator + 1));
+			}
+			catch(InvalidPathException ex)
+			{
+				return null;
+			}
+
+			if(!apiFingerprint(dependency).equals(dependencyFingerprint))
+				return null;
+		}
+
+		return Arrays.stream(lines, count + 1, lines.length).collect(Collectors.joining("\n"));
+	}
+
+	public void put(String source, String rewritten, Set<Path> dependencies)
+	{
+		var path = entryPath(source);
+		var entry = new StringBuilder();
+		entry.append(dependencies.size()).append('\n');
+
+		for(var dependency : dependencies)
+			entry.append(apiFingerprint(dependency)).append(' ').append(dependency.toAbsolutePath()).append('\n');
+
+		entry.append(rewritten);
+
+		try
+		{
+			Files.createDirectories(path.getParent());
+
+			// entries are written to a temporary file first and then moved into place atomically,
+			// so builds sharing the cache directory never observe partially written entries
+			var temp = Files.createTempFile(path.getParent(), "entry", ".tmp");
+
+			try
+			{
+				Files.writeString(temp, entry);
+				Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			}
+			finally
+			{
+				Files.deleteIfExists(temp);
+			}
+		}
+		catch(IOException ex)
+		{
+			// the cache is an optimization only, failing to store an entry must not fail the build
+		}
+	}
+}
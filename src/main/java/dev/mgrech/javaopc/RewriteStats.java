@@ -0,0 +1,130 @@
+package dev.mgrech.javaopc;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// the metrics of all files rewritten by a session, written as JSON for --stats
+// the times are in nanoseconds, and summed over all files, i.e. over all jobs
+class RewriteStats
+{
+	private final List<FileMetrics> files = new ArrayList<>();
+	private final AtomicInteger prefiltered = new AtomicInteger();
+	private final AtomicInteger cached = new AtomicInteger();
+
+	void prefiltered()
+	{
+		prefiltered.incrementAndGet();
+	}
+
+	void cached()
+	{
+		cached.incrementAndGet();
+	}
+
+	synchronized void add(FileMetrics metrics)
+	{
+		files.add(metrics);
+	}
+
+	private static String string(String value)
+	{
+		if(value == null)
+			return "null";
+
+		var result = new StringBuilder("\"");
+
+		for(var c : value.toCharArray())
+		{
+			if(c == '"' || c == '\\')
+				result.append('\\').append(c);
+			else if(c < 0x20)
+				result.append(String.format("\\u%04x", (int)c));
+			else
+				result.append(c);
+		}
+
+		return result.append('"').toString();
+	}
+
+	private static void appendMetrics(StringBuilder json, long[] nanos, long[] counts)
+	{
+		for(var phase : FileMetrics.Phase.values())
+			json.append(", \"").append(phase.label).append("Nanos\": ").append(nanos[phase.ordinal()]);
+
+		for(var counter : FileMetrics.Counter.values())
+			json.append(", \"").append(counter.label).append("\": ").append(counts[counter.ordinal()]);
+	}
+
+	synchronized String toJson()
+	{
+		// jobs finish files in any order
+		var sorted = new ArrayList<>(files);
+		sorted.sort(Comparator.comparing(FileMetrics::file, Comparator.nullsLast(Comparator.naturalOrder())));
+
+		var totalNanos = new long[FileMetrics.Phase.values().length];
+		var totalCounts = new long[FileMetrics.Counter.values().length];
+		var perFile = new StringBuilder();
+		var rewritten = 0;
+
+		for(var metrics : sorted)
+		{
+			var nanos = new long[totalNanos.length];
+			var counts = new long[totalCounts.length];
+
+			for(var phase : FileMetrics.Phase.values())
+			{
+				nanos[phase.ordinal()] = metrics.nanos(phase);
+				totalNanos[phase.ordinal()] += nanos[phase.ordinal()];
+			}
+
+			for(var counter : FileMetrics.Counter.values())
+			{
+				counts[counter.ordinal()] = metrics.count(counter);
+				totalCounts[counter.ordinal()] += counts[counter.ordinal()];
+			}
+
+			if(metrics.rewritten())
+				++rewritten;
+
+			perFile.append(perFile.length() == 0 ? "\n" : ",\n");
+			perFile.append("    {\"file\": ").append(string(metrics.file())).append(", \"rewritten\": ").append(metrics.rewritten());
+			appendMetrics(perFile, nanos, counts);
+			perFile.append('}');
+		}
+
+		var json = new StringBuilder("{\n");
+		json.append("  \"parsed\": ").append(sorted.size()).append(",\n");
+		json.append("  \"rewritten\": ").append(rewritten).append(",\n");
+		json.append("  \"prefiltered\": ").append(prefiltered.get()).append(",\n");
+		json.append("  \"cached\": ").append(cached.get()).append(",\n");
+		json.append("  \"totals\": {\"files\": ").append(sorted.size());
+		appendMetrics(json, totalNanos, totalCounts);
+		json.append("},\n");
+		json.append("  \"files\": [").append(perFile).append(perFile.length() == 0 ? "]\n" : "\n  ]\n");
+		json.append("}\n");
+		return json.toString();
+	}
+
+	void write(Path file)
+	{
+		try
+		{
+			var parent = file.toAbsolutePath().getParent();
+
+			if(parent != null)
+				Files.createDirectories(parent);
+
+			Files.writeString(file, toJson());
+		}
+		catch(IOException ex)
+		{
+			throw new UncheckedIOException(ex);
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package dev.mgrech.javaopc;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+// rewrites source trees into an output directory with the same layout, without running javac
+class SourceEmitter
+{
+	private final Path outputDirectory;
+	private final JavaopcSession session;
+	private final PrintWriter out;
+	private final ExecutorService executor;
+
+	// bounds the number of files that are read but not yet written, so memory does not grow with the tree
+	private final Semaphore inFlight;
+	private final AtomicBoolean success = new AtomicBoolean(true);
+
+	// a file may be reached both through a source root and as an explicit argument
+	private final Set<Path> submitted = ConcurrentHashMap.newKeySet();
+
+	SourceEmitter(Path outputDirectory, JavaopcSession session, PrintWriter out)
+	{
+		this.outputDirectory = outputDirectory;
+		this.session = session;
+		this.out = out;
+		this.executor = Executors.newFixedThreadPool(session.jobs());
+		this.inFlight = new Semaphore(2 * session.jobs());
+	}
+
+	// every file is rewritten, even if it is older than its output, since the operators it uses may have changed in
+	// another file, the class path or the release, which is what the rewrite cache tracks to make this cheap
+	// outputs are only written if they changed, so tools building the output directory don't rebuild everything
+	private void rewrite(Path input, Path output)
+	{
+		try
+		{
+			var rewritten = session.rewrite(Files.readString(input));
+
+			if(Files.exists(output) && Files.readString(output).equals(rewritten))
+				return;
+
+			Files.createDirectories(output.getParent());
+			Files.writeString(output, rewritten);
+		}
+		catch(Throwable ex)
+		{
+			// errors as well, e.g. running out of stack on a deeply nested expression, nobody reads the task's future
+			success.set(false);
+
+			synchronized(out)
+			{
+				out.println(input + ": " + (ex.getMessage() == null ? ex.toString() : ex.getMessage()));
+			}
+		}
+		finally
+		{
+			inFlight.release();
+		}
+	}
+
+	private void submit(Path input, Path relativePath)
+	{
+		var output = outputDirectory.resolve(relativePath);
+
+		if(!submitted.add(output.toAbsolutePath().normalize()))
+			return;
+
+		try
+		{
+			inFlight.acquire();
+		}
+		catch(InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(ex);
+		}
+
+		executor.submit(() -> rewrite(input, output));
+	}
+
+	void emitTree(Path root)
+	{
+		try(Stream<Path> files = Files.walk(root))
+		{
+			files.filter(f -> f.toString().endsWith(".java"))
+			     .forEach(f -> submit(f, root.relativize(f)));
+		}
+		catch(IOException ex)
+		{
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	// files given explicitly keep their path relative to the source root containing them,
+	// or relative to the working directory if they are not part of a source tree
+	void emitFile(Path file, List<Path> roots)
+	{
+		var absolute = file.toAbsolutePath().normalize();
+		var cwd = Paths.get("").toAbsolutePath();
+
+		var root = roots.stream()
+		                .map(r -> r.toAbsolutePath().normalize())
+		                .filter(absolute::startsWith)
+		                .findFirst()
+		                .orElse(cwd);
+
+		submit(absolute, absolute.startsWith(root) ? root.relativize(absolute) : absolute.getFileName());
+	}
+
+	boolean finish()
+	{
+		executor.shutdown();
+
+		try
+		{
+			while(!executor.awaitTermination(1, TimeUnit.MINUTES))
+				continue;
+		}
+		catch(InterruptedException ex)
+		{
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+			return false;
+		}
+
+		out.flush();
+		return success.get();
+	}
+}
@@ -0,0 +1,461 @@
+package dev.mgrech.javaopc;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// the declarations of the source files in a source root, i.e. the types they declare and the identifiers they mention,
+// extracted from their tokens rather than by parsing them, so that locating the file declaring a type costs a lookup
+// instead of parsing the directory it may be declared in
+// the declarations themselves are still parsed from that file, see SourceIndexTypeSolver, since the symbol solver resolves
+// members, supertypes and type parameters through the nodes of the declaration, which tokens can't stand in for
+// the index is kept for as long as the process lives and stored in a file that is mapped when it is loaded again,
+// records are revalidated per file by size and modification time, and by the hash of the contents if those changed,
+// while the root is only listed again if one of its directories was modified, i.e. files were added or removed
+public class SourceIndex
+{
+	private static final int MAGIC = 0x4a4f5049;
+	private static final int VERSION = 2;
+
+	public static class TypeRecord
+	{
+		// relative to the package, e.g. 'Outer.Inner'
+		public final String name;
+
+		TypeRecord(String name)
+		{
+			this.name = name;
+		}
+	}
+
+	public static class FileRecord
+	{
+		public final Path path;
+		final long size;
+		final long modified;
+		final String hash;
+		public final String packageName;
+		public final List<TypeRecord> types;
+
+		// all identifiers in the file, which is what OperatorPrefilter needs to know about it
+		public final Set<String> mentioned;
+
+		FileRecord(Path path, long size, long modified, String hash, String packageName, List<TypeRecord> types, Set<String> mentioned)
+		{
+			this.path = path;
+			this.size = size;
+			this.modified = modified;
+			this.hash = hash;
+			this.packageName = packageName;
+			this.types = types;
+			this.mentioned = mentioned;
+		}
+
+		FileRecord withStat(long size, long modified)
+		{
+			return new FileRecord(path, size, modified, hash, packageName, types, mentioned);
+		}
+
+		String qualify(String name)
+		{
+			return packageName.isEmpty() ? name : packageName + "." + name;
+		}
+	}
+
+	// where a type is declared, i.e. the file and the name of the type relative to its package
+	public static class Location
+	{
+		public final Path file;
+		public final String name;
+
+		Location(Path file, String name)
+		{
+			this.file = file;
+			this.name = name;
+		}
+	}
+
+	// shared by all builds of the process, e.g. by the builds a daemon runs
+	private static final Map<Path, SourceIndex> INDICES = new ConcurrentHashMap<>();
+
+	private final Path root;
+	private final Path store;
+
+	// replaced as a whole on every refresh, so readers never see a partially refreshed index
+	private volatile Map<Path, FileRecord> files = Map.of();
+	private volatile Map<String, Location> types = Map.of();
+
+	// the directories of the root with their modification times, which change when files are added or removed
+	private volatile Map<Path, Long> directories = Map.of();
+
+	// bumped whenever the files of the root change
+	private volatile long generation = 0;
+
+	private SourceIndex(Path root, Path store)
+	{
+		this.root = root;
+		this.store = store;
+	}
+
+	// the index of a source root, brought up to date with the files in it
+	// it is stored in the given directory if that isn't null
+	public static SourceIndex of(Path root, Path directory)
+	{
+		var absolute = root.toAbsolutePath().normalize();
+		var store = directory == null ? null : directory.resolve("index").resolve(RewriteCache.hash(absolute.toString()) + ".idx");
+
+		var index = INDICES.computeIfAbsent(absolute, r -> new SourceIndex(r, store));
+		index.refresh();
+		return index;
+	}
+
+	public Collection<FileRecord> files()
+	{
+		return files.values();
+	}
+
+	public Set<String> packages()
+	{
+		return files.values().stream().map(f -> f.packageName).collect(Collectors.toSet());
+	}
+
+	// null if no file in the root declares a type of this name
+	public Location locate(String qualifiedName)
+	{
+		return types.get(qualifiedName);
+	}
+
+	// the same generation means the same files with the same contents, at least as far as their sizes and
+	// modification times tell, e.g. for a daemon to know when its solvers of the root are out of date
+	public long generation()
+	{
+		return generation;
+	}
+
+	private static long modified(Path path)
+	{
+		try
+		{
+			return Files.getLastModifiedTime(path).toMillis();
+		}
+		catch(IOException ex)
+		{
+			return -1;
+		}
+	}
+
+	// the files of the root need to be listed again only if a directory in it was modified
+	private boolean directoriesUnchanged()
+	{
+		if(directories.isEmpty())
+			return false;
+
+		return directories.entrySet().stream().allMatch(e -> modified(e.getKey()) == e.getValue());
+	}
+
+	private synchronized void refresh()
+	{
+		// the stored index is only needed before the first refresh in this process
+		var previous = files.isEmpty() && store != null ? load(store) : files;
+
+		List<Path> paths;
+		var listed = directories;
+
+		if(!files.isEmpty() && directoriesUnchanged())
+			paths = new ArrayList<>(files.keySet());
+		else
+		{
+			try(Stream<Path> walk = Files.walk(root))
+			{
+				var all = walk.collect(Collectors.toList());
+				paths = all.stream().filter(f -> f.toString().endsWith(".java")).collect(Collectors.toList());
+				listed = all.stream().filter(Files::isDirectory).collect(Collectors.toMap(d -> d, SourceIndex::modified));
+			}
+			catch(IOException ex)
+			{
+				// a missing root declares nothing, the solver finds nothing in it either
+				paths = List.of();
+				listed = Map.of();
+			}
+		}
+
+		directories = listed;
+
+		var refreshed = paths.parallelStream()
+		                     .map(p -> refresh(p, previous.get(p)))
+		                     .filter(r -> r != null)
+		                     .collect(Collectors.toMap(r -> r.path, r -> r));
+
+		var changed = refreshed.size() != previous.size() || refreshed.values().stream().anyMatch(r -> previous.get(r.path) != r);
+
+		if(!changed && !files.isEmpty())
+			return;
+
+		var refreshedTypes = new HashMap<String, Location>();
+
+		for(var file : refreshed.values())
+		{
+			for(var type : file.types)
+				refreshedTypes.putIfAbsent(file.qualify(type.name), new Location(file.path, type.name));
+		}
+
+		files = refreshed;
+		types = refreshedTypes;
+		++generation;
+
+		if(changed && store != null)
+			save(store, refreshed.values());
+	}
+
+	private static FileRecord refresh(Path file, FileRecord record)
+	{
+		try
+		{
+			var size = Files.size(file);
+			var modified = Files.getLastModifiedTime(file).toMillis();
+
+			if(record != null && record.size == size && record.modified == modified)
+				return record;
+
+			var text = Files.readString(file);
+			var hash = RewriteCache.hash(text);
+
+			// touched, but not changed
+			if(record != null && record.hash.equals(hash))
+				return record.withStat(size, modified);
+
+			return scan(file, size, modified, hash, text);
+		}
+		catch(IOException | UncheckedIOException ex)
+		{
+			return null;
+		}
+	}
+
+	private static class OpenType
+	{
+		final String name;
+		final int depth;
+
+		OpenType(String name, int depth)
+		{
+			this.name = name;
+			this.depth = depth;
+		}
+	}
+
+	private static boolean declaresType(List<SourceTokens.Token> tokens, int i)
+	{
+		var token = tokens.get(i);
+		var isKeyword = token.isKeyword("class") || token.isKeyword("interface") || token.isKeyword("enum") || token.is("record");
+
+		// excludes class literals, whose keyword follows a dot
+		return isKeyword && i + 1 < tokens.size() && tokens.get(i + 1).isIdentifier() && (i == 0 || !tokens.get(i - 1).is("."));
+	}
+
+	// member types, found by tracking the braces enclosing them
+	// local and anonymous classes are not members, so they are not indexed, like the solver doesn't find them
+	private static FileRecord scan(Path file, long size, long modified, String hash, String text)
+	{
+		var tokens = SourceTokens.tokenize(text);
+		var packageName = "";
+		var mentioned = new HashSet<String>();
+		var types = new ArrayList<TypeRecord>();
+		Deque<OpenType> open = new ArrayDeque<>();
+		OpenType pending = null;
+		var depth = 0;
+
+		for(var i = 0; i != tokens.size(); ++i)
+		{
+			var token = tokens.get(i);
+
+			if(token.isIdentifier())
+				mentioned.add(token.text);
+
+			var memberLevel = open.isEmpty() ? depth == 0 : depth == open.peek().depth;
+
+			if(token.isKeyword("package") && depth == 0)
+			{
+				var name = new StringBuilder();
+
+				for(++i; i < tokens.size() && !tokens.get(i).is(";"); ++i)
+					name.append(tokens.get(i).text);
+
+				packageName = name.toString();
+			}
+			else if(memberLevel && pending == null && declaresType(tokens, i))
+			{
+				var name = tokens.get(i + 1).text;
+				var qualified = open.isEmpty() ? name : open.peek().name + "." + name;
+				pending = new OpenType(qualified, depth + 1);
+			}
+			else if(token.is("{"))
+			{
+				++depth;
+
+				if(pending != null)
+				{
+					open.push(pending);
+					pending = null;
+				}
+			}
+			else if(token.is("}"))
+			{
+				if(!open.isEmpty() && open.peek().depth == depth)
+				{
+					types.add(new TypeRecord(open.pop().name));
+				}
+
+				--depth;
+			}
+		}
+
+		return new FileRecord(file, size, modified, hash, packageName, types, mentioned);
+	}
+
+	static class Reader
+	{
+		final ByteBuffer buffer;
+
+		Reader(ByteBuffer buffer)
+		{
+			this.buffer = buffer;
+		}
+
+		String string()
+		{
+			var bytes = new byte[buffer.getInt()];
+			buffer.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		List<String> strings()
+		{
+			var count = buffer.getInt();
+			var result = new ArrayList<String>(count);
+
+			for(var i = 0; i != count; ++i)
+				result.add(string());
+
+			return result;
+		}
+	}
+
+	static void writeString(DataOutputStream out, String s) throws IOException
+	{
+		var bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	static void writeStrings(DataOutputStream out, Collection<String> strings) throws IOException
+	{
+		out.writeInt(strings.size());
+
+		for(var s : strings)
+			writeString(out, s);
+	}
+
+	private static Map<Path, FileRecord> load(Path store)
+	{
+		var result = new HashMap<Path, FileRecord>();
+
+		try(var channel = FileChannel.open(store))
+		{
+			var in = new Reader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+
+			if(in.buffer.getInt() != MAGIC || in.buffer.getInt() != VERSION)
+				return Map.of();
+
+			var count = in.buffer.getInt();
+
+			for(var i = 0; i != count; ++i)
+			{
+				var path = Path.of(in.string());
+				var size = in.buffer.getLong();
+				var modified = in.buffer.getLong();
+				var hash = in.string();
+				var packageName = in.string();
+				var types = new ArrayList<TypeRecord>();
+
+				for(var j = in.buffer.getInt(); j != 0; --j)
+					types.add(new TypeRecord(in.string()));
+
+				var mentioned = new HashSet<>(in.strings());
+				result.put(path, new FileRecord(path, size, modified, hash, packageName, types, mentioned));
+			}
+		}
+		catch(IOException | RuntimeException ex)
+		{
+			// a missing or damaged index is simply rebuilt
+			return Map.of();
+		}
+
+		return result;
+	}
+
+	private static void save(Path store, Collection<FileRecord> records)
+	{
+		try
+		{
+			Files.createDirectories(store.getParent());
+
+			// written to a temporary file first and moved into place atomically, like the entries of the rewrite cache
+			var temp = Files.createTempFile(store.getParent(), "index", ".tmp");
+
+			try
+			{
+				try(var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp))))
+				{
+					out.writeInt(MAGIC);
+					out.writeInt(VERSION);
+					out.writeInt(records.size());
+
+					for(var record : records)
+					{
+						writeString(out, record.path.toString());
+						out.writeLong(record.size);
+						out.writeLong(record.modified);
+						writeString(out, record.hash);
+						writeString(out, record.packageName);
+						out.writeInt(record.types.size());
+
+						for(var type : record.types)
+							writeString(out, type.name);
+
+						writeStrings(out, record.mentioned);
+					}
+				}
+
+				Files.move(temp, store, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			}
+			finally
+			{
+				Files.deleteIfExists(temp);
+			}
+		}
+		catch(IOException ex)
+		{
+			// the index is an optimization only, failing to store it must not fail the build
+		}
+	}
+}
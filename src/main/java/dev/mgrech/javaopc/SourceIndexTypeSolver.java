@@ -0,0 +1,95 @@
+package dev.mgrech.javaopc;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseStart;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.Providers;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.resolution.UnsolvedSymbolException;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.symbolsolver.javaparser.Navigator;
+import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
+import com.github.javaparser.symbolsolver.model.resolution.SymbolReference;
+import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// resolves types from the sources of a source root like JavaParserTypeSolver, but asks the index of the root
+// which file declares a type, so that only that file is parsed and types that are not declared in the root
+// are not looked for at all, where JavaParserTypeSolver parses every directory the type might be declared in
+public class SourceIndexTypeSolver implements TypeSolver
+{
+	private final SourceIndex index;
+	private final JavaParser parser = new JavaParser(new ParserConfiguration().setLanguageLevel(ParserConfiguration.LanguageLevel.BLEEDING_EDGE));
+
+	// like the solvers themselves, the parsed files belong to a single worker
+	private final Map<Path, Optional<CompilationUnit>> parsed = new HashMap<>();
+	private final Map<String, SymbolReference<ResolvedReferenceTypeDeclaration>> found = new HashMap<>();
+
+	private TypeSolver parent = null;
+
+	SourceIndexTypeSolver(SourceIndex index)
+	{
+		this.index = index;
+	}
+
+	@Override
+	public TypeSolver getParent()
+	{
+		return parent;
+	}
+
+	@Override
+	public void setParent(TypeSolver parent)
+	{
+		this.parent = parent;
+	}
+
+	private Optional<CompilationUnit> parse(Path file)
+	{
+		return parsed.computeIfAbsent(file, f ->
+		{
+			try
+			{
+				// like JavaParserTypeSolver, types are looked up in what could be parsed of the file
+				return parser.parse(ParseStart.COMPILATION_UNIT, Providers.provider(f)).getResult().map(cu -> cu.setStorage(f));
+			}
+			catch(IOException ex)
+			{
+				return Optional.empty();
+			}
+		});
+	}
+
+	private SymbolReference<ResolvedReferenceTypeDeclaration> solve(String name)
+	{
+		var location = index.locate(name);
+		var declaration = location == null ? null : parse(location.file).flatMap(cu -> Navigator.findType(cu, location.name)).orElse(null);
+
+		if(declaration == null)
+			return SymbolReference.unsolved(ResolvedReferenceTypeDeclaration.class);
+
+		return SymbolReference.solved(JavaParserFacade.get(this).getTypeDeclaration(declaration));
+	}
+
+	@Override
+	public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name)
+	{
+		return found.computeIfAbsent(name, this::solve);
+	}
+
+	@Override
+	public ResolvedReferenceTypeDeclaration solveType(String name) throws UnsolvedSymbolException
+	{
+		var ref = tryToSolveType(name);
+
+		if(!ref.isSolved())
+			throw new UnsolvedSymbolException(name);
+
+		return ref.getCorrespondingDeclaration();
+	}
+}
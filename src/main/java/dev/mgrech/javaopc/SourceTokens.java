@@ -0,0 +1,145 @@
+package dev.mgrech.javaopc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+// a lexer that is just precise enough to look at sources without parsing them: comments are dropped,
+// string and character literals become a single token without their content
+public class SourceTokens
+{
+	public enum Kind
+	{
+		IDENTIFIER,
+		LITERAL,
+		OPERATOR,
+	}
+
+	public static class Token
+	{
+		public final Kind kind;
+		public final String text;
+
+		Token(Kind kind, String text)
+		{
+			this.kind = kind;
+			this.text = text;
+		}
+
+		public boolean is(String text)
+		{
+			return this.text.equals(text);
+		}
+
+		public boolean isIdentifier()
+		{
+			return kind == Kind.IDENTIFIER && !KEYWORDS.contains(text);
+		}
+
+		public boolean isKeyword(String keyword)
+		{
+			return kind == Kind.IDENTIFIER && text.equals(keyword);
+		}
+	}
+
+	public static final Set<String> KEYWORDS = Set.of(
+		"abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const", "continue",
+		"default", "do", "double", "else", "enum", "extends", "final", "finally", "float", "for", "goto", "if",
+		"implements", "import", "instanceof", "int", "interface", "long", "native", "new", "package", "private",
+		"protected", "public", "return", "short", "static", "strictfp", "super", "switch", "synchronized", "this",
+		"throw", "throws", "transient", "try", "void", "volatile", "while", "true", "false", "null");
+
+	public static final Set<String> PRIMITIVE_TYPES = Set.of(
+		"boolean", "byte", "char", "double", "float", "int", "long", "short", "void");
+
+	// longest first, so that the first match is the whole operator
+	private static final List<String> OPERATORS = List.of(
+		">>>=", "<<=", ">>=", ">>>", "...", "->", "::", "++", "--", "&&", "||", "==", "!=", "<=", ">=",
+		"+=", "-=", "*=", "/=", "&=", "|=", "^=", "%=", "<<", ">>");
+
+	private static int skipQuoted(String source, int i, char quote)
+	{
+		// text blocks end with the next unescaped triple quote
+		if(quote == '"' && source.startsWith("\"\"\"", i))
+		{
+			var end = i + 3;
+
+			while(end < source.length() && !source.startsWith("\"\"\"", end))
+				end += source.charAt(end) == '\\' ? 2 : 1;
+
+			return Math.min(end + 3, source.length());
+		}
+
+		var end = i + 1;
+
+		while(end < source.length() && source.charAt(end) != quote && source.charAt(end) != '\n')
+			end += source.charAt(end) == '\\' ? 2 : 1;
+
+		return Math.min(end + 1, source.length());
+	}
+
+	private static boolean isNumberPart(char c)
+	{
+		return Character.isLetterOrDigit(c) || c == '_' || c == '.';
+	}
+
+	public static List<Token> tokenize(String source)
+	{
+		var tokens = new ArrayList<Token>();
+		var i = 0;
+
+		while(i < source.length())
+		{
+			var c = source.charAt(i);
+
+			if(Character.isWhitespace(c))
+				++i;
+			else if(source.startsWith("//", i))
+			{
+				var end = source.indexOf('\n', i);
+				i = end == -1 ? source.length() : end;
+			}
+			else if(source.startsWith("/*", i))
+			{
+				var end = source.indexOf("*/", i + 2);
+				i = end == -1 ? source.length() : end + 2;
+			}
+			else if(c == '"' || c == '\'')
+			{
+				i = skipQuoted(source, i, c);
+				tokens.add(new Token(Kind.LITERAL, String.valueOf(c)));
+			}
+			else if(Character.isJavaIdentifierStart(c))
+			{
+				var end = i + 1;
+
+				while(end < source.length() && Character.isJavaIdentifierPart(source.charAt(end)))
+					++end;
+
+				tokens.add(new Token(Kind.IDENTIFIER, source.substring(i, end)));
+				i = end;
+			}
+			else if(Character.isDigit(c) || c == '.' && i + 1 < source.length() && Character.isDigit(source.charAt(i + 1)))
+			{
+				var end = i + 1;
+
+				// exponents may be signed
+				while(end < source.length() && (isNumberPart(source.charAt(end))
+				      || "+-".indexOf(source.charAt(end)) != -1 && "eEpP".indexOf(source.charAt(end - 1)) != -1))
+					++end;
+
+				tokens.add(new Token(Kind.LITERAL, source.substring(i, end)));
+				i = end;
+			}
+			else
+			{
+				var start = i;
+				var op = OPERATORS.stream().filter(o -> source.startsWith(o, start)).findFirst().orElse(String.valueOf(c));
+				tokens.add(new Token(Kind.OPERATOR, op));
+				i += op.length();
+			}
+		}
+
+		return tokens;
+	}
+}
@@ -0,0 +1,299 @@
+package dev.mgrech.javaopc;
+
+import com.github.javaparser.ast.DataKey;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.*;
+import com.github.javaparser.ast.nodeTypes.NodeWithParameters;
+import com.github.javaparser.ast.nodeTypes.SwitchNode;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.stmt.CatchClause;
+import com.github.javaparser.ast.stmt.ExpressionStmt;
+import com.github.javaparser.ast.stmt.ForEachStmt;
+import com.github.javaparser.ast.stmt.ForStmt;
+import com.github.javaparser.ast.stmt.Statement;
+import com.github.javaparser.ast.stmt.SwitchEntry;
+import com.github.javaparser.ast.stmt.TryStmt;
+import com.github.javaparser.ast.type.ArrayType;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.type.PrimitiveType;
+import com.github.javaparser.ast.type.Type;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// tells the types of expressions built only from literals and locals with builtin types without the symbol solver,
+// so that the bulk of arithmetic in numeric code can be skipped by OperatorVisitor
+public class SyntacticTypes
+{
+	public enum Kind
+	{
+		PRIMITIVE,
+		// builtin according to Types.isBuiltinType, but possibly not primitive
+		BUILTIN,
+	}
+
+	// only stored for operands of nodes being visited, whose subtrees are not rewritten anymore
+	private static final DataKey<Kind> KIND = new DataKey<>() {};
+
+	// whether simple names of builtin classes refer to java.lang within a type or method
+	private static final DataKey<Map<String, Boolean>> JAVA_LANG_NAMES = new DataKey<>() {};
+
+	private static VariableDeclarator declaredBy(Expression expr, String name)
+	{
+		if(!(expr instanceof VariableDeclarationExpr))
+			return null;
+
+		for(var variable : ((VariableDeclarationExpr)expr).getVariables())
+			if(variable.getNameAsString().equals(name))
+				return variable;
+
+		return null;
+	}
+
+	// statements are compared by identity, since nodes compare equal structurally
+	private static VariableDeclarator declaredBefore(NodeList<Statement> statements, Node end, String name)
+	{
+		for(var stmt : statements)
+		{
+			if(stmt == end)
+				break;
+
+			var variable = stmt instanceof ExpressionStmt ? declaredBy(((ExpressionStmt)stmt).getExpression(), name) : null;
+
+			if(variable != null)
+				return variable;
+		}
+
+		return null;
+	}
+
+	private static Parameter parameter(NodeWithParameters<?> node, String name)
+	{
+		return node.getParameterByName(name).orElse(null);
+	}
+
+	// the local variable or parameter a name refers to, following the scoping rules of blocks, or null if the name
+	// refers to something else, e.g. a field, or if it cannot be told without resolving types
+	private static Node localDeclaration(NameExpr expr)
+	{
+		var name = expr.getNameAsString();
+		Node child = expr;
+
+		for(var node = expr.getParentNode().orElse(null); node != null; child = node, node = node.getParentNode().orElse(null))
+		{
+			// members of (anonymous) classes may shadow locals of enclosing methods
+			if(node instanceof TypeDeclaration || node instanceof ObjectCreationExpr && child instanceof BodyDeclaration)
+				return null;
+
+			Node declaration = null;
+
+			if(node instanceof BlockStmt)
+				declaration = declaredBefore(((BlockStmt)node).getStatements(), child, name);
+			else if(node instanceof SwitchEntry)
+				declaration = declaredBefore(((SwitchEntry)node).getStatements(), child, name);
+			else if(node instanceof SwitchNode)
+			{
+				// the scope of a local in a switch block extends into the following entries
+				for(var entry : ((SwitchNode)node).getEntries())
+				{
+					if(entry == child || declaration != null)
+						break;
+
+					declaration = declaredBefore(entry.getStatements(), null, name);
+				}
+			}
+			else if(node instanceof VariableDeclarationExpr)
+			{
+				for(var variable : ((VariableDeclarationExpr)node).getVariables())
+				{
+					if(variable == child)
+						break;
+
+					if(variable.getNameAsString().equals(name))
+						declaration = variable;
+				}
+			}
+			else if(node instanceof ForStmt)
+			{
+				for(var init : ((ForStmt)node).getInitialization())
+					if(declaration == null)
+						declaration = declaredBy(init, name);
+			}
+			else if(node instanceof ForEachStmt && child == ((ForEachStmt)node).getBody())
+				declaration = declaredBy(((ForEachStmt)node).getVariable(), name);
+			else if(node instanceof TryStmt && child == ((TryStmt)node).getTryBlock())
+			{
+				for(var resource : ((TryStmt)node).getResources())
+					if(declaration == null)
+						declaration = declaredBy(resource, name);
+			}
+			else if(node instanceof CatchClause)
+			{
+				var param = ((CatchClause)node).getParameter();
+				declaration = param.getNameAsString().equals(name) ? param : null;
+			}
+			else if(node instanceof LambdaExpr || node instanceof CallableDeclaration)
+				declaration = parameter((NodeWithParameters<?>)node, name);
+
+			if(declaration != null)
+				return declaration;
+		}
+
+		return null;
+	}
+
+	private static boolean refersToJavaLang(Expression location, String name)
+	{
+		// methods may declare type parameters that shadow class names
+		Node scope = location.findAncestor(CallableDeclaration.class).map(Node.class::cast)
+		                     .or(() -> location.findAncestor(TypeDeclaration.class))
+		                     .orElse(null);
+
+		var cu = location.findCompilationUnit().orElse(null);
+
+		if(scope == null || cu == null || !cu.containsData(Lookup.TYPE_SOLVER))
+			return false;
+
+		if(!scope.containsData(JAVA_LANG_NAMES))
+			scope.setData(JAVA_LANG_NAMES, new HashMap<>());
+
+		return scope.getData(JAVA_LANG_NAMES).computeIfAbsent(name, n ->
+		{
+			var decl = Lookup.resolveTypeName(location, n, cu.getData(Lookup.TYPE_SOLVER));
+			return decl != null && decl.getQualifiedName().equals("java.lang." + n);
+		});
+	}
+
+	private static Kind kindOfType(Type type, Expression location)
+	{
+		if(type instanceof PrimitiveType)
+			return Kind.PRIMITIVE;
+
+		if(type instanceof ArrayType)
+			return Kind.BUILTIN;
+
+		if(!(type instanceof ClassOrInterfaceType))
+			return null;
+
+		var classType = (ClassOrInterfaceType)type;
+		var name = classType.getNameAsString();
+
+		if(!Types.isBuiltinClassName(name) || classType.getTypeArguments().isPresent())
+			return null;
+
+		var scope = classType.getScope().map(ClassOrInterfaceType::asString).orElse(null);
+
+		if(scope == null ? refersToJavaLang(location, name) : scope.equals("java.lang"))
+			return Kind.BUILTIN;
+
+		return null;
+	}
+
+	private static Kind kindOfName(NameExpr expr)
+	{
+		var declaration = localDeclaration(expr);
+
+		if(declaration instanceof Parameter)
+		{
+			var param = (Parameter)declaration;
+
+			// varargs parameters are arrays
+			return param.isVarArgs() ? Kind.BUILTIN : kindOfType(param.getType(), expr);
+		}
+
+		if(declaration instanceof VariableDeclarator)
+		{
+			var variable = (VariableDeclarator)declaration;
+
+			if(variable.getType().isVarType())
+				return variable.getInitializer().map(SyntacticTypes::kindOf).orElse(null);
+
+			return kindOfType(variable.getType(), expr);
+		}
+
+		return null;
+	}
+
+	private static boolean yieldsBoolean(BinaryExpr.Operator op)
+	{
+		switch(op)
+		{
+		case AND:
+		case OR:
+		case EQUALS:
+		case NOT_EQUALS:
+		case LESS:
+		case LESS_EQUALS:
+		case GREATER:
+		case GREATER_EQUALS:
+			return true;
+
+		default:
+			return false;
+		}
+	}
+
+	private static Kind computeKind(Expression expr)
+	{
+		if(expr instanceof EnclosedExpr)
+			return kindOf(((EnclosedExpr)expr).getInner());
+
+		if(expr instanceof IntegerLiteralExpr
+		|| expr instanceof LongLiteralExpr
+		|| expr instanceof DoubleLiteralExpr
+		|| expr instanceof CharLiteralExpr
+		|| expr instanceof BooleanLiteralExpr
+		|| expr instanceof InstanceOfExpr)
+			return Kind.PRIMITIVE;
+
+		if(expr instanceof StringLiteralExpr || expr instanceof TextBlockLiteralExpr)
+			return Kind.BUILTIN;
+
+		if(expr instanceof CastExpr)
+			return ((CastExpr)expr).getType() instanceof PrimitiveType ? Kind.PRIMITIVE : null;
+
+		if(expr instanceof NameExpr)
+			return kindOfName((NameExpr)expr);
+
+		if(expr instanceof UnaryExpr)
+			return kindOf(((UnaryExpr)expr).getExpression()) == Kind.PRIMITIVE ? Kind.PRIMITIVE : null;
+
+		if(expr instanceof BinaryExpr)
+		{
+			var binaryExpr = (BinaryExpr)expr;
+			var left = kindOf(binaryExpr.getLeft());
+			var right = left == null ? null : kindOf(binaryExpr.getRight());
+
+			if(left == null || right == null)
+				return null;
+
+			// arithmetic on boxed types or strings may be either
+			if(left == Kind.PRIMITIVE && right == Kind.PRIMITIVE || yieldsBoolean(binaryExpr.getOperator()))
+				return Kind.PRIMITIVE;
+
+			return Kind.BUILTIN;
+		}
+
+		return null;
+	}
+
+	// null if the type of the expression cannot be told syntactically
+	public static Kind kindOf(Expression expr)
+	{
+		if(expr.containsData(KIND))
+			return expr.getData(KIND);
+
+		var kind = computeKind(expr);
+
+		if(kind != null)
+			expr.setData(KIND, kind);
+
+		return kind;
+	}
+}
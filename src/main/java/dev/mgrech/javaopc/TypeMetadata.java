@@ -0,0 +1,186 @@
+package dev.mgrech.javaopc;
+
+import com.github.javaparser.resolution.MethodUsage;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.types.ResolvedReferenceType;
+import com.github.javaparser.symbolsolver.javaparsermodel.declarations.JavaParserAnonymousClassDeclaration;
+import com.github.javaparser.symbolsolver.javaparsermodel.declarations.JavaParserClassDeclaration;
+import com.github.javaparser.symbolsolver.javassistmodel.JavassistClassDeclaration;
+import com.github.javaparser.symbolsolver.javassistmodel.JavassistEnumDeclaration;
+import com.github.javaparser.symbolsolver.javassistmodel.JavassistInterfaceDeclaration;
+import com.github.javaparser.symbolsolver.logic.FunctionalInterfaceLogic;
+import com.github.javaparser.symbolsolver.reflectionmodel.ReflectionClassDeclaration;
+import com.github.javaparser.symbolsolver.reflectionmodel.ReflectionEnumDeclaration;
+import com.github.javaparser.symbolsolver.reflectionmodel.ReflectionInterfaceDeclaration;
+
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+// what rewriting asks about the same types over and over, e.g. whether an operand is comparable, which walks its
+// whole hierarchy, computed once per type and build and shared by all workers like the resolutions of the build
+// the declarations a worker resolves belong to its solver, so only names are kept, and entries are keyed by
+// qualified name, the same type resolves to the same name in every worker
+// like resolutions, an entry remembers the source files it was computed from, e.g. those of the supertypes of a type,
+// and a file using it depends on them as if it had computed the entry itself
+class TypeMetadata
+{
+	private static final String JAVA_LANG_COMPARABLE = "java.lang.Comparable";
+
+	// filled in when first asked for, workers computing the same field at the same time arrive at the same value
+	private static class Entry
+	{
+		final Set<Path> dependencies = ConcurrentHashMap.newKeySet();
+
+		volatile Set<String> ancestors;
+		volatile Optional<String> functionalMethod;
+		volatile Set<String> operatorMethods;
+	}
+
+	private final Map<String, Entry> entries;
+
+	// records the dependencies of the file being rewritten, none if they aren't tracked
+	private final DependencyRecorder recorder;
+
+	TypeMetadata()
+	{
+		this(new ConcurrentHashMap<>(), null);
+	}
+
+	private TypeMetadata(Map<String, Entry> entries, DependencyRecorder recorder)
+	{
+		this.entries = entries;
+		this.recorder = recorder;
+	}
+
+	// the same entries, as seen by a file whose dependencies the given recorder records
+	TypeMetadata recordingInto(DependencyRecorder recorder)
+	{
+		return recorder == null ? this : new TypeMetadata(entries, recorder);
+	}
+
+	private <T> T compute(Entry entry, Supplier<T> value)
+	{
+		if(recorder == null)
+			return value.get();
+
+		var dependencies = new HashSet<Path>();
+		var result = recorder.capture(dependencies, value);
+
+		// added before the field is set, so whoever sees the field sees what it depends on
+		entry.dependencies.addAll(dependencies);
+		return result;
+	}
+
+	private void replay(Entry entry)
+	{
+		if(recorder != null)
+			recorder.replay(entry.dependencies);
+	}
+
+	private Entry entry(ResolvedReferenceTypeDeclaration decl)
+	{
+		// anonymous classes and local classes of different methods may share their qualified name
+		if(decl instanceof JavaParserAnonymousClassDeclaration)
+			return new Entry();
+
+		if(decl instanceof JavaParserClassDeclaration && ((JavaParserClassDeclaration)decl).getWrappedNode().isLocalClassDeclaration())
+			return new Entry();
+
+		return entries.computeIfAbsent(decl.getQualifiedName(), name -> new Entry());
+	}
+
+	// the qualified names of all supertypes
+	Set<String> ancestors(ResolvedReferenceTypeDeclaration decl)
+	{
+		var entry = entry(decl);
+
+		if(entry.ancestors == null)
+			entry.ancestors = compute(entry, () -> decl.getAllAncestors().stream()
+			                                           .map(ResolvedReferenceType::getQualifiedName)
+			                                           .collect(Collectors.toSet()));
+		else
+			replay(entry);
+
+		return entry.ancestors;
+	}
+
+	boolean implementsComparable(ResolvedReferenceTypeDeclaration decl)
+	{
+		return ancestors(decl).contains(JAVA_LANG_COMPARABLE);
+	}
+
+	// the name of the abstract method of a functional interface, null for any other type
+	String functionalMethod(ResolvedReferenceTypeDeclaration decl)
+	{
+		var entry = entry(decl);
+
+		if(entry.functionalMethod == null)
+			entry.functionalMethod = compute(entry, () -> Optional.ofNullable(abstractMethod(decl)));
+		else
+			replay(entry);
+
+		return entry.functionalMethod.orElse(null);
+	}
+
+	// like functionalMethod, but computed every time
+	// JavaParser takes classes that implement a functional interface, e.g. Comparable, for functional interfaces,
+	// and the method of an interface may be inherited, so it is not necessarily among the declared ones
+	static String abstractMethod(ResolvedReferenceTypeDeclaration decl)
+	{
+		if(!decl.isInterface())
+			return null;
+
+		return FunctionalInterfaceLogic.getFunctionalMethod(decl).map(MethodUsage::getName).orElse(null);
+	}
+
+	// the names of the operator methods the type and its supertypes declare
+	Set<String> operatorMethods(ResolvedReferenceTypeDeclaration decl)
+	{
+		var entry = entry(decl);
+
+		if(entry.operatorMethods == null)
+			entry.operatorMethods = compute(entry, () -> collectOperatorMethods(decl));
+		else
+			replay(entry);
+
+		return entry.operatorMethods;
+	}
+
+	static Set<String> collectOperatorMethods(ResolvedReferenceTypeDeclaration decl)
+	{
+		var names = new HashSet<String>();
+		addOperatorMethods(decl, names);
+
+		for(var ancestor : decl.getAllAncestors())
+			addOperatorMethods(ancestor.getTypeDeclaration(), names);
+
+		return names;
+	}
+
+	private static void addOperatorMethods(ResolvedReferenceTypeDeclaration decl, Set<String> names)
+	{
+		for(var method : decl.getDeclaredMethods())
+		{
+			if(Operators.lookup(method.getName()) != null)
+				names.add(method.getName());
+		}
+	}
+
+	// types read from class files resolve a method among their own methods and those of their supertypes only,
+	// while types from source continue with the enclosing types and the imports of their file
+	static boolean isCompiled(ResolvedReferenceTypeDeclaration decl)
+	{
+		return decl instanceof ReflectionClassDeclaration
+		    || decl instanceof ReflectionInterfaceDeclaration
+		    || decl instanceof ReflectionEnumDeclaration
+		    || decl instanceof JavassistClassDeclaration
+		    || decl instanceof JavassistInterfaceDeclaration
+		    || decl instanceof JavassistEnumDeclaration;
+	}
+}
@@ -24,8 +24,12 @@ public class Types
 		if(!decl.getPackageName().equals("java.lang"))
 			return false;
 
-		var name = decl.getName();
+		return isBuiltinClassName(decl.getName());
+	}
 
+	// the classes of java.lang that count as builtin types
+	public static boolean isBuiltinClassName(String name)
+	{
 		return name.equals("Boolean")
 			|| name.equals("Byte")
 			|| name.equals("Character")
@@ -37,9 +41,29 @@ public class Types
 			|| name.equals("String");
 	}
 
-	public static boolean isFunctionalInterface(ResolvedType type)
+	// whether two types are the same, where the same class may be modelled twice: methods read from class files, i.e. those
+	// of jars read by LazyJarTypeSolver, model the types of their signatures from the class files, even if the type solver
+	// models those classes by reflection, and the two models of a class don't compare equal in both directions
+	static boolean isSameType(ResolvedType a, ResolvedType b)
 	{
-		return type.isReferenceType() && type.asReferenceType().getTypeDeclaration().isFunctionalInterface();
+		if(a.equals(b))
+			return true;
+
+		return a.isReferenceType() && b.isReferenceType() && a.describe().equals(b.describe());
+	}
+
+	// the name of the abstract method of a functional interface, null for any other type
+	static String functionalMethod(TypeMetadata metadata, ResolvedType type)
+	{
+		if(!type.isReferenceType())
+			return null;
+
+		var decl = type.asReferenceType().getTypeDeclaration();
+
+		if(metadata != null)
+			return metadata.functionalMethod(decl);
+
+		return TypeMetadata.abstractMethod(decl);
 	}
 
 	public static ResolvedType isComparable(ResolvedType type)
@@ -68,4 +92,13 @@ public class Types
 
 		return comparable;
 	}
+
+	// like implementsComparable, but the hierarchy of each type is only walked once per build
+	static boolean implementsComparable(TypeMetadata metadata, ResolvedType type)
+	{
+		if(metadata == null)
+			return implementsComparable(type) != null;
+
+		return type.isReferenceType() && metadata.implementsComparable(type.asReferenceType().getTypeDeclaration());
+	}
 }
@@ -0,0 +1,205 @@
+package dev.mgrech.javaopc;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.DataKey;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.EnumConstantDeclaration;
+import com.github.javaparser.ast.body.EnumDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.ObjectCreationExpr;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.declarations.ResolvedValueDeclaration;
+import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
+import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// decides from the declarations in scope whether the name of an invocation may refer to a variable, i.e. whether 'f(x)'
+// may be an invocation operator, so that ordinary method calls need not be resolved at all
+// the names declared by a node are computed once and stored on it, so that each file is scanned only once
+// only inherited fields and fields imported on demand require the symbol solver
+public class VariableNames
+{
+	// the names declared anywhere within a member of a type, i.e. its locals and parameters
+	private static final DataKey<Set<String>> LOCALS = new DataKey<>() {};
+
+	// the fields and enum constants declared by a type
+	private static final DataKey<Set<String>> FIELDS = new DataKey<>() {};
+
+	// the fields a type inherits or a static import on demand imports, empty if they could not be resolved
+	private static final DataKey<Optional<Set<String>>> IMPORTED = new DataKey<>() {};
+
+	private static Set<String> declaredInMember(Node member)
+	{
+		if(!member.containsData(LOCALS))
+		{
+			var names = new HashSet<String>();
+			member.walk(VariableDeclarator.class, v -> names.add(v.getNameAsString()));
+			member.walk(Parameter.class, p -> names.add(p.getNameAsString()));
+			member.setData(LOCALS, names);
+		}
+
+		return member.getData(LOCALS);
+	}
+
+	private static Set<String> declaredInType(TypeDeclaration<?> type)
+	{
+		if(!type.containsData(FIELDS))
+		{
+			var names = new HashSet<String>();
+
+			for(var member : type.getMembers())
+			{
+				if(member instanceof FieldDeclaration)
+					((FieldDeclaration)member).getVariables().forEach(v -> names.add(v.getNameAsString()));
+			}
+
+			if(type instanceof EnumDeclaration)
+				((EnumDeclaration)type).getEntries().stream().map(EnumConstantDeclaration::getNameAsString).forEach(names::add);
+
+			type.setData(FIELDS, names);
+		}
+
+		return type.getData(FIELDS);
+	}
+
+	private static Set<String> fieldNames(ResolvedReferenceTypeDeclaration type)
+	{
+		return type.getAllFields().stream().map(ResolvedValueDeclaration::getName).collect(Collectors.toSet());
+	}
+
+	private static boolean hasSupertypes(TypeDeclaration<?> type)
+	{
+		if(type instanceof ClassOrInterfaceDeclaration)
+		{
+			var decl = (ClassOrInterfaceDeclaration)type;
+			return decl.getExtendedTypes().isNonEmpty() || decl.getImplementedTypes().isNonEmpty();
+		}
+
+		if(type instanceof EnumDeclaration)
+			return ((EnumDeclaration)type).getImplementedTypes().isNonEmpty();
+
+		return false;
+	}
+
+	private static Set<String> inheritedByType(TypeDeclaration<?> type, TypeSolver solver)
+	{
+		if(!hasSupertypes(type))
+			return Set.of();
+
+		if(!type.containsData(IMPORTED))
+		{
+			Set<String> names;
+
+			try
+			{
+				names = solver == null ? null : fieldNames(JavaParserFacade.get(solver).getTypeDeclaration(type));
+			}
+			catch(RuntimeException ex)
+			{
+				names = null;
+			}
+
+			type.setData(IMPORTED, Optional.ofNullable(names));
+		}
+
+		return type.getData(IMPORTED).orElse(null);
+	}
+
+	private static Set<String> importedOnDemand(ImportDeclaration decl, TypeSolver solver)
+	{
+		if(!decl.containsData(IMPORTED))
+		{
+			Set<String> names;
+
+			try
+			{
+				var type = solver == null ? null : solver.tryToSolveType(decl.getNameAsString());
+				names = type == null || !type.isSolved() ? null : fieldNames(type.getCorrespondingDeclaration());
+			}
+			catch(RuntimeException ex)
+			{
+				names = null;
+			}
+
+			decl.setData(IMPORTED, Optional.ofNullable(names));
+		}
+
+		return decl.getData(IMPORTED).orElse(null);
+	}
+
+	private static boolean mayBeImported(CompilationUnit cu, String name, TypeSolver solver)
+	{
+		for(var decl : cu.getImports())
+		{
+			if(!decl.isStatic())
+				continue;
+
+			if(!decl.isAsterisk())
+			{
+				if(decl.getName().getIdentifier().equals(name))
+					return true;
+
+				continue;
+			}
+
+			var names = importedOnDemand(decl, solver);
+
+			if(names == null || names.contains(name))
+				return true;
+		}
+
+		return false;
+	}
+
+	// conservative: true unless no local, parameter, field or imported field of that name can be in scope
+	public static boolean mayNameVariable(MethodCallExpr expr)
+	{
+		var cu = expr.findCompilationUnit().orElse(null);
+
+		// not part of a compilation unit, nothing is known about it
+		if(cu == null)
+			return true;
+
+		var solver = cu.containsData(Lookup.TYPE_SOLVER) ? cu.getData(Lookup.TYPE_SOLVER) : null;
+		var name = expr.getNameAsString();
+		Node member = expr;
+
+		for(var node = expr.getParentNode().orElse(null); node != cu; node = node.getParentNode().orElse(null))
+		{
+			// the fields of anonymous classes are not worth resolving their supertypes for
+			if(node instanceof ObjectCreationExpr && ((ObjectCreationExpr)node).getAnonymousClassBody().isPresent())
+				return true;
+
+			if(node instanceof TypeDeclaration)
+			{
+				var type = (TypeDeclaration<?>)node;
+
+				// the locals of a nested type's members were checked when passing through the nested type
+				if(!(member instanceof TypeDeclaration) && declaredInMember(member).contains(name))
+					return true;
+
+				if(declaredInType(type).contains(name))
+					return true;
+
+				var inherited = inheritedByType(type, solver);
+
+				if(inherited == null || inherited.contains(name))
+					return true;
+			}
+
+			member = node;
+		}
+
+		return mayBeImported(cu, name, solver);
+	}
+}
@@ -0,0 +1,109 @@
+package dev.mgrech.javaopc;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.Providers;
+import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
+import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// the solver and parser of a single rewriting thread together with the source files the current rewrite resolved types from
+// neither the solvers nor the ASTs they cache internally are safe to share between threads
+class Worker
+{
+	private final DependencyRecorder dependencies = new DependencyRecorder();
+	private final List<TypeSolver> solvers = new ArrayList<>();
+	private final JavaOperatorCompilerPostProcessor postProcessor;
+	private final JavaParser parser;
+
+	Worker(ClassPathIndex index)
+	{
+		var solver = new ClassPathTypeSolver(index, dependencies);
+		solvers.addAll(solver.solvers());
+		postProcessor = new JavaOperatorCompilerPostProcessor(solver, null, dependencies);
+		parser = JavaOperatorCompiler.createParser(solver, postProcessor);
+	}
+
+	Worker(TypeSolver solver)
+	{
+		solvers.add(solver);
+		postProcessor = new JavaOperatorCompilerPostProcessor(solver, null, dependencies);
+		parser = JavaOperatorCompiler.createParser(solver, postProcessor);
+	}
+
+	// JavaParserFacade keeps its instances in an unsynchronized map, so every solver must be registered
+	// before any thread starts resolving symbols with it, and while no other thread is using the map
+	// this has to happen after the tree is complete, since a facade captures the root of its solver
+	void register()
+	{
+		solvers.forEach(JavaParserFacade::get);
+	}
+
+	String process(String source, RewriteCache cache, ResolutionCache resolutions, OperatorPrefilter prefilter, RewriteStats stats,
+	               ResolutionProfile profile, ResolutionBudget budget)
+	{
+		// passed on as is, without being parsed
+		if(prefilter != null && !prefilter.mayContainOperators(source))
+		{
+			if(stats != null)
+				stats.prefiltered();
+
+			return source;
+		}
+
+		if(cache != null)
+		{
+			var cached = cache.get(source);
+
+			if(cached != null)
+			{
+				if(stats != null)
+					stats.cached();
+
+				return cached;
+			}
+		}
+
+		var metrics = new FileMetrics();
+
+		try
+		{
+			dependencies.clear();
+			postProcessor.setResolutions(resolutions);
+			postProcessor.setMetrics(metrics);
+			postProcessor.setProfile(profile);
+			postProcessor.setBudget(budget);
+			metrics.enter(FileMetrics.Phase.PARSE);
+
+			var cu = JavaOperatorCompiler.parse(parser, Providers.provider(source));
+
+			if(cu == null)
+				return null;
+
+			// files without overloaded operators are compiled from their original text, which spares printing
+			// them and keeps the line numbers of javac's diagnostics intact
+			metrics.setRewritten(cu.getData(JavaOperatorCompilerPostProcessor.REWRITTEN));
+			metrics.enter(FileMetrics.Phase.PRINT);
+			var rewritten = metrics.rewritten() ? cu.toString() : source;
+			metrics.leave();
+
+			// neither the budget nor the time a site took are part of the fingerprint of the cache, a site that exceeded
+			// the budget may well resolve differently in the next build, e.g. with a larger budget or on an idle machine
+			if(cache != null && !metrics.budgetExceeded())
+				cache.put(source, rewritten, dependencies.dependencies());
+
+			return rewritten;
+		}
+		finally
+		{
+			postProcessor.setMetrics(null);
+			postProcessor.setProfile(null);
+			postProcessor.setBudget(null);
+			metrics.finish();
+
+			if(stats != null)
+				stats.add(metrics);
+		}
+	}
+}
@@ -1,29 +1,69 @@
 package dev.mgrech.javaopc.test;
 
-import com.github.javaparser.Providers;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
 import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
-import dev.mgrech.javaopc.JavaOperatorCompiler;
+import dev.mgrech.javaopc.JavaopcSession;
+import dev.mgrech.javaopc.Main;
+import dev.mgrech.javaopc.PlatformTypeSolver;
 import org.junit.Assert;
 import org.mdkt.compiler.CompilationException;
 import org.mdkt.compiler.InMemoryJavaCompiler;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
 
 public class Driver
 {
+	// shared by all tests, like a build plugin would share it between builds
+	// platform types are read from the runtime image, so only the test classes themselves are loaded by reflection
+	private static final JavaopcSession SESSION = new JavaopcSession(new CombinedTypeSolver(new PlatformTypeSolver(), new ReflectionTypeSolver(false)));
+
+	private static String runMain(Class<?> program) throws Exception
+	{
+		var main = program.getDeclaredMethod("main", String[].class);
+
+		var oldOut = System.out;
+		var baos = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(baos));
+
+		try
+		{
+			main.invoke(null, new Object[]{new String[0]});
+		}
+		finally
+		{
+			System.setOut(oldOut);
+		}
+
+		return new String(baos.toByteArray(), StandardCharsets.UTF_8);
+	}
+
 	private static void runTest(String testName) throws Exception
 	{
 		var sourceDir = new File(Driver.class.getResource("/tests").toURI()).toPath();
 		var sourceFile = sourceDir.resolve(String.format("%s/Program.java", testName));
 
 		var source = Files.readString(sourceFile);
-		var cu = JavaOperatorCompiler.parse(Providers.provider(source), new ReflectionTypeSolver(false));
 
-		if(cu == null)
+		// every test declares its own class Program
+		SESSION.invalidate();
+		var rewritten = SESSION.rewrite(source);
+
+		if(rewritten == null)
 			throw new RuntimeException("failed to process source:\n" + source);
 
 		var compiler = InMemoryJavaCompiler.newInstance();
@@ -31,7 +71,7 @@ public class Driver
 
 		try
 		{
-			program = compiler.compile("Program", cu.toString());
+			program = compiler.compile("Program", rewritten);
 		}
 		catch(CompilationException ex)
 		{
@@ -39,34 +79,182 @@ public class Driver
 			throw ex;
 		}
 
-		var main = program.getDeclaredMethod("main", String[].class);
+		var expectedOutput = Driver.class.getResourceAsStream(String.format("/tests/%s/expected.txt", testName));
+		var expected = new String(expectedOutput.readAllBytes(), StandardCharsets.UTF_8);
+		Assert.assertEquals(expected, runMain(program));
+	}
 
-		var oldOut = System.out;
-		var baos = new ByteArrayOutputStream();
-		System.setOut(new PrintStream(baos));
+	public static void runTest()
+	{
+		try
+		{
+			var callerFrame = new Exception().getStackTrace()[1];
+			var testName = callerFrame.getMethodName();
+			runTest(testName);
+		}
+		catch(RuntimeException ex)
+		{
+			throw ex;
+		}
+		catch(Exception ex)
+		{
+			throw new RuntimeException(ex);
+		}
+	}
+
+	public static class Result
+	{
+		public final int exitCode;
+		public final String output;
+
+		private Result(int exitCode, String output)
+		{
+			this.exitCode = exitCode;
+			this.output = output;
+		}
+	}
+
+	private static final List<Path> temporaryDirectories = new ArrayList<>();
+
+	static
+	{
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> temporaryDirectories.forEach(Driver::delete)));
+	}
+
+	private static void delete(Path directory)
+	{
+		try(var paths = Files.walk(directory))
+		{
+			for(var path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+				Files.delete(path);
+		}
+		catch(IOException ex)
+		{
+			// the directories are temporary anyway
+		}
+	}
 
+	// a new directory that is deleted when the tests are done
+	public static synchronized Path temporaryDirectory()
+	{
 		try
 		{
-			main.invoke(null, new Object[]{new String[0]});
+			var directory = Files.createTempDirectory("javaopc-test");
+			temporaryDirectories.add(directory);
+			return directory;
 		}
-		finally
+		catch(IOException ex)
 		{
-			System.setOut(oldOut);
+			throw new UncheckedIOException(ex);
 		}
+	}
 
-		var expectedOutput = Driver.class.getResourceAsStream(String.format("/tests/%s/expected.txt", testName));
-		var expected = new String(expectedOutput.readAllBytes(), StandardCharsets.UTF_8);
-		var actual = new String(baos.toByteArray(), StandardCharsets.UTF_8);
-		Assert.assertEquals(expected, actual);
+	private static Path resourceDirectory(String testName) throws Exception
+	{
+		return new File(Driver.class.getResource("/tests").toURI()).toPath().resolve(testName);
 	}
 
-	public static void runTest()
+	// a copy of the project of the calling test, i.e. of tests/<test>/, that the test may change as it likes
+	public static Path project()
+	{
+		return project(new Exception().getStackTrace()[1].getMethodName());
+	}
+
+	// a copy of a project shared by several tests
+	public static Path project(String testName)
 	{
 		try
 		{
-			var callerFrame = new Exception().getStackTrace()[1];
-			var testName = callerFrame.getMethodName();
-			runTest(testName);
+			var source = resourceDirectory(testName);
+			var target = temporaryDirectory();
+
+			try(var paths = Files.walk(source))
+			{
+				for(var path : paths.collect(Collectors.toList()))
+				{
+					if(!path.equals(source))
+						Files.copy(path, target.resolve(source.relativize(path).toString()));
+				}
+			}
+
+			return target;
+		}
+		catch(RuntimeException ex)
+		{
+			throw ex;
+		}
+		catch(Exception ex)
+		{
+			throw new RuntimeException(ex);
+		}
+	}
+
+	// the source files below a directory, in a stable order
+	public static List<String> sources(Path root)
+	{
+		try(var paths = Files.walk(root))
+		{
+			return paths.filter(p -> p.toString().endsWith(".java")).map(Path::toString).sorted().collect(Collectors.toList());
+		}
+		catch(IOException ex)
+		{
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	// runs javaopc in this process like the command line does, collections of arguments are spliced in
+	public static Result javaopc(Object... args)
+	{
+		var arguments = new ArrayList<String>();
+
+		for(var arg : args)
+		{
+			if(arg instanceof Collection<?>)
+				((Collection<?>)arg).forEach(a -> arguments.add(a.toString()));
+			else
+				arguments.add(arg.toString());
+		}
+
+		try
+		{
+			var out = new StringWriter();
+			var exitCode = Main.run(arguments, out);
+			return new Result(exitCode, out.toString());
+		}
+		catch(IOException ex)
+		{
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	// runs the main method of a compiled class and returns what it printed
+	public static String runMain(Path classes, String className)
+	{
+		try(var loader = new URLClassLoader(new URL[]{classes.toUri().toURL()}, Driver.class.getClassLoader()))
+		{
+			return runMain(loader.loadClass(className));
+		}
+		catch(RuntimeException ex)
+		{
+			throw ex;
+		}
+		catch(Exception ex)
+		{
+			throw new RuntimeException(ex);
+		}
+	}
+
+	// what the project of the calling test is expected to print
+	public static String expectedOutput()
+	{
+		return expectedOutput(new Exception().getStackTrace()[1].getMethodName());
+	}
+
+	public static String expectedOutput(String testName)
+	{
+		try
+		{
+			return Files.readString(resourceDirectory(testName).resolve("expected.txt"));
 		}
 		catch(RuntimeException ex)
 		{
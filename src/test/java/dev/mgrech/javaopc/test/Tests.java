@@ -1,15 +1,114 @@
 package dev.mgrech.javaopc.test;
 
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.expr.BinaryExpr;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.stmt.ReturnStmt;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ClassLoaderTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
+import dev.mgrech.javaopc.Daemon;
+import dev.mgrech.javaopc.DaemonClient;
+import dev.mgrech.javaopc.JavaopcSession;
+import dev.mgrech.javaopc.OperatorPrefilter;
+import dev.mgrech.javaopc.PlatformTypeSolver;
+import dev.mgrech.javaopc.SourceIndex;
+import dev.mgrech.javaopc.SyntacticTypes;
+import dev.mgrech.javaopc.VariableNames;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assert;
 import org.junit.Test;
 
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
 public class Tests
 {
+	@Test
+	public void builtinOperandsOfShadowedNamesCompile()
+	{
+		Driver.runTest();
+	}
+
 	@Test
 	public void builtinOperatorsStillWork()
 	{
 		Driver.runTest();
 	}
 
+	@Test
+	public void builtinOperandsAreToldWithoutSolver()
+	{
+		var cu = parse("class A\n" +
+		               "{\n" +
+		               "	Object field;\n" +
+		               "	void m(int parameter, String... rest)\n" +
+		               "	{\n" +
+		               "		long local = 0;\n" +
+		               "		var inferred = local * 2;\n" +
+		               "		var uses = parameter + local + inferred + field + rest.length;\n" +
+		               "	}\n" +
+		               "}\n");
+
+		Assert.assertEquals(SyntacticTypes.Kind.PRIMITIVE, SyntacticTypes.kindOf(find(cu, BinaryExpr.class, "parameter + local + inferred")));
+		Assert.assertEquals(SyntacticTypes.Kind.BUILTIN, SyntacticTypes.kindOf(find(cu, NameExpr.class, "rest")));
+		Assert.assertNull(SyntacticTypes.kindOf(find(cu, NameExpr.class, "field")));
+	}
+
+	// the rewritten body of the only method of a class
+	private static String rewrittenReturn(JavaopcSession session, Path file) throws IOException
+	{
+		var rewritten = session.rewrite(Files.readString(file));
+		return parse(rewritten).findFirst(ReturnStmt.class).orElseThrow().toString();
+	}
+
+	@Test
+	public void classPathEntriesAreSearchedInOrder() throws IOException
+	{
+		var project = Driver.project("classPathOrder");
+		var stretch = project.resolve("app/app/Stretch.java");
+		var first = project.resolve("first").toString();
+		var second = project.resolve("second").toString();
+
+		// both entries declare both classes, but only the first entry's declarations are seen
+		Assert.assertEquals("return Vec.opProduct(v, s);", rewrittenReturn(new JavaopcSession(first + ";" + second, 1), stretch));
+		Assert.assertEquals("return Scale.opProduct(v, s);", rewrittenReturn(new JavaopcSession(second + ";" + first, 1), stretch));
+	}
+
+	@Test
+	public void platformTypesAreNotShadowedByClassPath()
+	{
+		var project = Driver.project("classPathOrder");
+		var session = new JavaopcSession(project.resolve("shadow").toString(), 1);
+
+		var ex = Assert.assertThrows(RuntimeException.class, () -> rewrittenReturn(session, project.resolve("app/app/Total.java")));
+		Assert.assertTrue(ex.getMessage(), ex.getMessage().contains("no applicable method found: opSum"));
+	}
+
 	@Test
 	public void comparisonOperatorsAsymmetric1stChoiceCompile()
 	{
@@ -28,30 +127,270 @@ public class Tests
 		Driver.runTest();
 	}
 
+	private static List<String> concat(List<String> first, List<String> second)
+	{
+		var result = new ArrayList<>(first);
+		result.addAll(second);
+		return result;
+	}
+
+	// a daemon on a thread of its own, which lives as long as the tests do
+	private static Path startDaemon(Path socket) throws InterruptedException
+	{
+		var thread = new Thread(() ->
+		{
+			try
+			{
+				new Daemon(socket).run();
+			}
+			catch(IOException ex)
+			{
+				throw new UncheckedIOException(ex);
+			}
+		});
+
+		thread.setDaemon(true);
+		thread.start();
+
+		for(var i = 0; i != 100 && !Files.exists(socket); ++i)
+			Thread.sleep(50);
+
+		return socket;
+	}
+
+	@Test
+	public void daemonCompilesForClients() throws Exception
+	{
+		var project = Driver.project("rewriteCache");
+		var src = project.resolve("src");
+		var socket = startDaemon(project.resolve("daemon.sock"));
+		var output = new StringWriter();
+
+		// only the owner of the daemon may have it compile
+		Assert.assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(socket));
+
+		var args = List.of("-cp", src.toString(), "-d", project.resolve("first").toString());
+		Assert.assertEquals(Integer.valueOf(0), DaemonClient.run(socket, concat(args, Driver.sources(src)), output));
+		Assert.assertEquals(output.toString(), Driver.expectedOutput("rewriteCache"), Driver.runMain(project.resolve("first"), "num.Program"));
+
+		// the daemon has to notice the new operator, the solvers of its first build don't know it
+		var vec = src.resolve("num/Vec.java");
+		var program = src.resolve("num/Program.java");
+		Files.writeString(vec, Files.readString(vec).replace("public static Vec opNegate", "public static Vec opSum(Vec a, int b)\n" +
+		                                                                                   "\t{\n\t\treturn new Vec(a.x + b, a.y + b);\n\t}\n\n" +
+		                                                                                   "\tpublic static Vec opNegate"));
+		Files.writeString(program, Files.readString(program).replace("c += -a;", "c += -a + 1;"));
+
+		args = List.of("-cp", src.toString(), "-d", project.resolve("second").toString());
+		Assert.assertEquals(Integer.valueOf(0), DaemonClient.run(socket, concat(args, Driver.sources(src)), output));
+		Assert.assertEquals(output.toString(), "(4, 5)\n", Driver.runMain(project.resolve("second"), "num.Program"));
+	}
+
+	@Test
+	public void daemonForgetsMissingTypesWhenSourcesChange() throws Exception
+	{
+		var project = Driver.project("classPathOrder");
+		var app = project.resolve("app");
+		var socket = startDaemon(project.resolve("daemon.sock"));
+		var output = new StringWriter();
+		var classPath = app + ";" + project.resolve("second");
+
+		// resolving Vec asks for app.Vec before the on-demand import, which is then known to be missing
+		var stretch = app.resolve("app/Stretch.java");
+		Files.writeString(stretch, Files.readString(stretch).replace("import num.Scale;\nimport num.Vec;", "import num.*;"));
+
+		var args = List.of("-cp", classPath, "--emit-sources", project.resolve("first").toString(), stretch.toString());
+		Assert.assertEquals(output.toString(), Integer.valueOf(0), DaemonClient.run(socket, args, output));
+		Assert.assertTrue(Files.readString(project.resolve("first/Stretch.java")).contains("return Scale.opProduct(v, s);"));
+
+		Files.writeString(app.resolve("app/Vec.java"), "package app;\n\nimport num.Scale;\n\n" +
+		                                              "public class Vec\n{\n" +
+		                                              "\tpublic static Vec opProduct(Vec v, Scale s)\n\t{\n\t\treturn v;\n\t}\n}\n");
+
+		args = List.of("-cp", classPath, "--emit-sources", project.resolve("second").toString(), stretch.toString());
+		Assert.assertEquals(output.toString(), Integer.valueOf(0), DaemonClient.run(socket, args, output));
+		Assert.assertTrue(Files.readString(project.resolve("second/Stretch.java")).contains("return Vec.opProduct(v, s);"));
+	}
+
+	@Test
+	public void daemonClientCompilesWithoutDaemon() throws IOException
+	{
+		var project = Driver.project("rewriteCache");
+		var src = project.resolve("src");
+		var socket = project.resolve("daemon.sock");
+
+		Assert.assertNull(DaemonClient.run(socket, concat(List.of("-cp", src.toString()), Driver.sources(src)), new StringWriter()));
+
+		var result = Driver.javaopc("--use-daemon", socket, "-cp", src, "-d", project.resolve("classes"), Driver.sources(src));
+		Assert.assertEquals(result.output, 0, result.exitCode);
+		Assert.assertEquals(Driver.expectedOutput("rewriteCache"), Driver.runMain(project.resolve("classes"), "num.Program"));
+	}
+
 	@Test
 	public void disambiguation()
 	{
 		Driver.runTest();
 	}
 
+	@Test
+	public void emittedSourcesFollowChangedDependencies() throws IOException
+	{
+		var project = Driver.project("resolutionBudget");
+		var src = project.resolve("src");
+		var num = src.resolve("num/Num.java");
+		var emitted = project.resolve("emitted/num/Program.java");
+
+		var result = Driver.javaopc("-sourcepath", src, "--emit-sources", project.resolve("emitted"));
+		Assert.assertEquals(result.output, 0, result.exitCode);
+		Assert.assertTrue(Files.readString(emitted).contains("Num.opSum(n, opConvert(2))"));
+
+		// Program itself is older than what was emitted for it, but it no longer converts its operand
+		Files.writeString(num, Files.readString(num).replace("public static Num opSum(Num a, Num b)", "public static Num opDifference(Num a, Num b)"));
+
+		result = Driver.javaopc("-sourcepath", src, "--emit-sources", project.resolve("emitted"));
+		Assert.assertEquals(result.output, 0, result.exitCode);
+		Assert.assertTrue(Files.readString(emitted).contains("Num.opSum(n, 2)"));
+	}
+
 	@Test
 	public void implicitConversionsInBinaryOperator()
 	{
 		Driver.runTest();
 	}
 
+	@Test
+	public void invocationOperatorForComparableClassCompiles()
+	{
+		Driver.runTest();
+	}
+
 	@Test
 	public void invocationOperatorForFunctionalInterfaceCompiles()
 	{
 		Driver.runTest();
 	}
 
+	@Test
+	public void invocationOperatorForInheritedFunctionalMethodCompiles()
+	{
+		Driver.runTest();
+	}
+
+	@Test
+	public void invocationOperatorOnVariablesOfEveryScopeCompiles()
+	{
+		Driver.runTest();
+	}
+
+	// parsed like JavaOperatorCompiler parses, i.e. with 'var'
+	private static CompilationUnit parse(String source)
+	{
+		var config = new ParserConfiguration().setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_12);
+		return new JavaParser(config).parse(source).getResult().orElseThrow();
+	}
+
+	private static <T extends Node> T find(CompilationUnit cu, Class<T> nodeType, String text)
+	{
+		return cu.findFirst(nodeType, node -> node.toString().equals(text)).orElseThrow();
+	}
+
+	@Test
+	public void invocationOperatorsAreRuledOutWithoutSolver()
+	{
+		var cu = parse("import static java.lang.Math.abs;\n" +
+		               "class A\n" +
+		               "{\n" +
+		               "	Object field;\n" +
+		               "	void m(Object parameter)\n" +
+		               "	{\n" +
+		               "		Object local = null;\n" +
+		               "		field(1); parameter(1); local(1); abs(1); method(1);\n" +
+		               "	}\n" +
+		               "	void method(int i) {}\n" +
+		               "}\n");
+
+		for(var name : List.of("field", "parameter", "local", "abs"))
+			Assert.assertTrue(name, VariableNames.mayNameVariable(find(cu, MethodCallExpr.class, name + "(1)")));
+
+		Assert.assertFalse(VariableNames.mayNameVariable(find(cu, MethodCallExpr.class, "method(1)")));
+	}
+
 	@Test
 	public void invocationOperatorWithExplicitOverloadingCompiles()
 	{
 		Driver.runTest();
 	}
 
+	// compiles a source file to the given directory and packs its classes into a jar
+	private static Path jar(Path source, Path classes, Path jar) throws IOException
+	{
+		var compiler = ToolProvider.getSystemJavaCompiler();
+		Assert.assertEquals(0, compiler.run(null, null, null, "-d", classes.toString(), source.toString()));
+
+		try(var out = new JarOutputStream(Files.newOutputStream(jar)); var walk = Files.walk(classes))
+		{
+			for(var file : walk.filter(f -> f.toString().endsWith(".class")).collect(Collectors.toList()))
+			{
+				out.putNextEntry(new JarEntry(classes.relativize(file).toString().replace(File.separatorChar, '/')));
+				out.write(Files.readAllBytes(file));
+				out.closeEntry();
+			}
+		}
+
+		return jar;
+	}
+
+	@Test
+	public void jarOperatorsResolve() throws IOException
+	{
+		var project = Driver.project("rewriteCache");
+		var vec = project.resolve("src/num/Vec.java");
+		var program = project.resolve("src/num/Program.java");
+		var classes = project.resolve("classes");
+
+		// the classes of the jar are in the output directory as well, to run the program
+		var lib = jar(vec, classes, project.resolve("vec.jar"));
+		var result = Driver.javaopc("-cp", lib, "-d", classes, program);
+		Assert.assertEquals(result.output, 0, result.exitCode);
+		Assert.assertEquals(Driver.expectedOutput("rewriteCache"), Driver.runMain(classes, "num.Program"));
+
+		// the index of the jar is replaced once the jar changes
+		Files.writeString(vec, Files.readString(vec).replace("public static Vec opNegate", "public static Vec opSum(Vec a, int b)\n" +
+		                                                                                   "\t{\n\t\treturn new Vec(a.x + b, a.y + b);\n\t}\n\n" +
+		                                                                                   "\tpublic static Vec opNegate"));
+		Files.writeString(program, Files.readString(program).replace("c += -a;", "c += -a + 1;"));
+
+		lib = jar(vec, classes, project.resolve("vec.jar"));
+		result = Driver.javaopc("-cp", lib, "-d", classes, program);
+		Assert.assertEquals(result.output, 0, result.exitCode);
+		Assert.assertEquals("(4, 5)\n", Driver.runMain(classes, "num.Program"));
+	}
+
+	@Test
+	public void jarParameterTypesMatchReflectedTypes() throws IOException
+	{
+		var project = Driver.project("jarParameterTypes");
+		var program = project.resolve("src/app/Program.java");
+		var classes = project.resolve("classes");
+		var lib = jar(project.resolve("lib/num/Money.java"), classes, project.resolve("money.jar"));
+
+		// the classes of the jar are read by Javassist, while BigInteger and its compareTo are modelled by reflection,
+		// e.g. the conversion of Money returns the former and compareTo takes the latter
+		var result = Driver.javaopc("-cp", lib, "-d", classes, program);
+		Assert.assertEquals(result.output, 0, result.exitCode);
+		Assert.assertEquals(Driver.expectedOutput("jarParameterTypes"), Driver.runMain(classes, "app.Program"));
+
+		// the same classes modelled by reflection
+		try(var loader = new URLClassLoader(new URL[]{lib.toUri().toURL()}, null))
+		{
+			var session = new JavaopcSession(new CombinedTypeSolver(new PlatformTypeSolver(), new ClassLoaderTypeSolver(loader)));
+			var rewritten = session.rewrite(Files.readString(program));
+
+			Assert.assertTrue(rewritten, rewritten.contains("return Money.opSum(money, cents);"));
+			Assert.assertTrue(rewritten, rewritten.contains("return cents.compareTo(Money.opConvert(money)) < 0;"));
+		}
+	}
+
 	@Test
 	public void lookupFindsOverloadsInArgumentClass()
 	{
@@ -100,6 +439,332 @@ public class Tests
 		Driver.runTest();
 	}
 
+	// the class files of a build by relative path, to compare builds with
+	private static Map<String, String> classFiles(Path directory)
+	{
+		try(var paths = Files.walk(directory))
+		{
+			var result = new TreeMap<String, String>();
+
+			for(var path : paths.filter(Files::isRegularFile).collect(Collectors.toList()))
+				result.put(directory.relativize(path).toString(), new String(Files.readAllBytes(path), StandardCharsets.ISO_8859_1));
+
+			return result;
+		}
+		catch(IOException ex)
+		{
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	@Test
+	public void parallelRewritingMatchesSequential()
+	{
+		var project = Driver.project();
+		var src = project.resolve("src");
+
+		var sequential = Driver.javaopc("-cp", src, "-d", project.resolve("sequential"), Driver.sources(src));
+		var parallel = Driver.javaopc("-j", 4, "-cp", src, "-d", project.resolve("parallel"), Driver.sources(src));
+
+		Assert.assertEquals(sequential.output, 0, sequential.exitCode);
+		Assert.assertEquals(parallel.output, 0, parallel.exitCode);
+		Assert.assertEquals(classFiles(project.resolve("sequential")), classFiles(project.resolve("parallel")));
+		Assert.assertEquals(Driver.expectedOutput(), Driver.runMain(project.resolve("parallel"), "shapes.Program"));
+	}
+
+	// a count of the --stats file of a build
+	private static int stat(Path statsFile, String name)
+	{
+		try
+		{
+			var matcher = Pattern.compile("\"" + name + "\": (\\d+)").matcher(Files.readString(statsFile));
+			Assert.assertTrue(name, matcher.find());
+			return Integer.parseInt(matcher.group(1));
+		}
+		catch(IOException ex)
+		{
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	// builds the rewrite cache project into a directory of its own and returns how many files came from the cache
+	private static int cachedBuild(Path project, String name, Object... options)
+	{
+		var src = project.resolve("src");
+		var classes = project.resolve(name);
+		var statsFile = project.resolve(name + ".json");
+
+		var result = Driver.javaopc("--rewrite-cache", project.resolve("cache"), "--stats", statsFile, "-d", classes, List.of(options),
+		                            Driver.sources(src));
+
+		Assert.assertEquals(result.output, 0, result.exitCode);
+		Assert.assertEquals(Driver.expectedOutput("rewriteCache"), Driver.runMain(classes, "num.Program"));
+		return stat(statsFile, "cached");
+	}
+
+	// the entries of a rewrite cache, i.e. everything except the source index kept next to them
+	private static List<Path> cacheEntries(Path cache)
+	{
+		try(var paths = Files.walk(cache))
+		{
+			return paths.filter(p -> p.toString().endsWith(".rewrite")).collect(Collectors.toList());
+		}
+		catch(IOException ex)
+		{
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	@Test
+	public void platformTypesAreThoseOfTheRelease() throws IOException
+	{
+		var project = Driver.project("platformRelease");
+		var classPath = project.toString();
+		var connect = project.resolve("Connect.java");
+
+		// the running JDK, and a release read from its ct.sym
+		for(var release : new String[]{null, "11"})
+			Assert.assertEquals("return Session.opSum(session, client);", rewrittenReturn(new JavaopcSession(classPath, release, 1), connect));
+
+		var ex = Assert.assertThrows(RuntimeException.class, () -> rewrittenReturn(new JavaopcSession(classPath, "8", 1), connect));
+		Assert.assertTrue(ex.getMessage(), ex.getMessage().contains("HttpClient"));
+	}
+
+	@Test
+	public void prefilterCanBeDisabled()
+	{
+		var project = Driver.project("prefilter");
+		var src = project.resolve("src");
+		var statsFile = project.resolve("stats.json");
+
+		var result = Driver.javaopc("--no-prefilter", "--stats", statsFile, "-cp", src, "-d", project.resolve("classes"), Driver.sources(src));
+		Assert.assertEquals(result.output, 0, result.exitCode);
+		Assert.assertFalse(result.output, result.output.contains("passed on unchanged"));
+		Assert.assertEquals(0, stat(statsFile, "prefiltered"));
+		Assert.assertEquals(Driver.sources(src).size(), stat(statsFile, "parsed"));
+		Assert.assertEquals(Driver.expectedOutput("prefilter"), Driver.runMain(project.resolve("classes"), "app.Program"));
+	}
+
+	@Test
+	public void prefilterReportsOnlyWhenAskedTo()
+	{
+		var project = Driver.project("prefilter");
+		var src = project.resolve("src");
+		var statsFile = project.resolve("stats.json");
+
+		var quiet = Driver.javaopc("-cp", src, "-d", project.resolve("quiet"), Driver.sources(src));
+		Assert.assertEquals(0, quiet.exitCode);
+		Assert.assertEquals("", quiet.output);
+
+		var summary = String.format("1 of %s source files contain no operators", Driver.sources(src).size());
+		var withStats = Driver.javaopc("--stats", statsFile, "-cp", src, "-d", project.resolve("stats"), Driver.sources(src));
+		Assert.assertTrue(withStats.output, withStats.output.contains(summary));
+		Assert.assertEquals(1, stat(statsFile, "prefiltered"));
+
+		var verbose = Driver.javaopc("-verbose", "-cp", src, "-d", project.resolve("verbose"), Driver.sources(src));
+		Assert.assertTrue(verbose.output.contains(summary));
+	}
+
+	@Test
+	public void prefilterSkipsOnlyFilesWithoutOperators() throws IOException
+	{
+		var project = Driver.project("prefilter");
+		var src = project.resolve("src");
+		var sources = Driver.sources(src);
+		var prefilter = new OperatorPrefilter(List.of(src), sources.stream().map(Paths::get).collect(Collectors.toList()), null);
+		var session = new JavaopcSession(src.toString(), 1);
+
+		// operators reached through a static import, a wildcard import, the same package, a nested type and a supertype
+		var rewritten = List.of("app/StaticImport.java", "app/WildcardImport.java", "ops/SamePackage.java", "app/Nested.java",
+		                        "app/ViaSupertype.java");
+
+		for(var file : sources)
+		{
+			var name = src.relativize(Paths.get(file)).toString().replace(File.separatorChar, '/');
+			var source = Files.readString(Paths.get(file));
+			var kept = prefilter.mayContainOperators(source);
+
+			Assert.assertEquals(name, !name.equals("app/Plain.java"), kept);
+
+			// whatever is passed on unchanged must not be changed by rewriting it either
+			if(!kept)
+				Assert.assertEquals(name, source, session.rewrite(source));
+			else if(rewritten.contains(name))
+				Assert.assertNotEquals(name, source, session.rewrite(source));
+		}
+	}
+
+	@Test
+	public void resolutionBudgetFallsBackWithoutCaching()
+	{
+		var project = Driver.project("resolutionBudget");
+		var src = project.resolve("src");
+		var cache = project.resolve("cache");
+
+		// the boxing overload is chosen, since converting the int is never tried
+		var result = Driver.javaopc("--resolution-budget", 1, "--rewrite-cache", cache, "-cp", src, "-d", project.resolve("first"),
+		                            Driver.sources(src));
+
+		Assert.assertEquals(result.output, 0, result.exitCode);
+		Assert.assertTrue(result.output, result.output.contains("javaopc: warning: resolving opSum at num.Program line 13, column 22 "
+		                                                        + "exceeded the budget after 1 candidates and "));
+		Assert.assertEquals("3\n", Driver.runMain(project.resolve("first"), "num.Program"));
+
+		// only Num was cached, Program is resolved in full without a budget, which is the default
+		Assert.assertEquals(1, cacheEntries(cache).size());
+
+		result = Driver.javaopc("--rewrite-cache", cache, "-cp", src, "-d", project.resolve("second"), Driver.sources(src));
+		Assert.assertEquals(result.output, 0, result.exitCode);
+		Assert.assertFalse(result.output, result.output.contains("exceeded the budget"));
+		Assert.assertEquals("21\n", Driver.runMain(project.resolve("second"), "num.Program"));
+	}
+
+	// the operator and site of each line of a --profile-resolution report, which is ordered by time
+	private static List<String> profiledSites(String output)
+	{
+		var site = Pattern.compile("^ +[\\d.]+ ms +\\d+ +\\d+  (\\w+) +(.*)$", Pattern.MULTILINE).matcher(output);
+		var sites = new ArrayList<String>();
+
+		while(site.find())
+			sites.add(site.group(1) + " " + site.group(2));
+
+		sites.sort(null);
+		return sites;
+	}
+
+	@Test
+	public void resolutionProfileReportsSlowestSites()
+	{
+		var project = Driver.project("rewriteCache");
+		var src = project.resolve("src");
+
+		var result = Driver.javaopc("--profile-resolution", 10, "-cp", src, "-d", project.resolve("classes"), Driver.sources(src));
+		Assert.assertEquals(result.output, 0, result.exitCode);
+		Assert.assertTrue(result.output, result.output.contains("javaopc: the 3 slowest of 3 operator resolutions, "));
+
+		// a compound assignment is located at the assignment, its operand at the operand
+		Assert.assertEquals(result.output, List.of("opNegate num.Program line 10, column 8",
+		                                           "opSum num.Program line 10, column 3",
+		                                           "opSum num.Program line 9, column 11"), profiledSites(result.output));
+
+		result = Driver.javaopc("--profile-resolution", 1, "-cp", src, "-d", project.resolve("classes"), Driver.sources(src));
+		Assert.assertEquals(result.output, 0, result.exitCode);
+		Assert.assertTrue(result.output, result.output.contains("javaopc: the 1 slowest of 3 operator resolutions, "));
+		Assert.assertEquals(result.output, 1, profiledSites(result.output).size());
+	}
+
+	@Test
+	public void rewriteCacheIgnoresDamagedEntries() throws IOException
+	{
+		var project = Driver.project("rewriteCache");
+		var src = project.resolve("src");
+
+		Assert.assertEquals(0, cachedBuild(project, "first", "-cp", src));
+
+		// too many dependencies, a dependency without a fingerprint, a negative count and no count at all
+		var damaged = List.of("3\nabc", "1\nno-fingerprint\nclass X {}", "-1\n", "");
+		var entries = cacheEntries(project.resolve("cache"));
+
+		for(var i = 0; i != entries.size(); ++i)
+			Files.writeString(entries.get(i), damaged.get(i % damaged.size()));
+
+		Assert.assertEquals(0, cachedBuild(project, "second", "-cp", src));
+	}
+
+	@Test
+	public void rewriteCacheIsInvalidatedByClassPath() throws IOException
+	{
+		var project = Driver.project("rewriteCache");
+		var src = project.resolve("src");
+		var lib = Files.createDirectory(project.resolve("lib"));
+
+		Assert.assertEquals(0, cachedBuild(project, "first", "-cp", src));
+		Assert.assertEquals(0, cachedBuild(project, "second", "-cp", src + ";" + lib));
+		Assert.assertNotEquals(0, cachedBuild(project, "third", "-cp", src + ";" + lib));
+	}
+
+	@Test
+	public void rewriteCacheIsInvalidatedByRelease()
+	{
+		var project = Driver.project("rewriteCache");
+		var src = project.resolve("src");
+
+		Assert.assertEquals(0, cachedBuild(project, "first", "-cp", src));
+		Assert.assertEquals(0, cachedBuild(project, "second", "-cp", src, "--release", "11"));
+		Assert.assertNotEquals(0, cachedBuild(project, "third", "-cp", src, "--release", "11"));
+	}
+
+	@Test
+	public void rewriteCacheKeepsDependentsOfChangedMethodBodies() throws IOException
+	{
+		var project = Driver.project("rewriteCache");
+		var src = project.resolve("src");
+		var vec = src.resolve("num/Vec.java");
+
+		Assert.assertEquals(0, cachedBuild(project, "first", "-cp", src));
+
+		// Vec itself is rewritten again, but Program only depends on its declarations
+		Files.writeString(vec, Files.readString(vec).replace("return new Vec(-a.x, -a.y);", "return new Vec(0 - a.x, 0 - a.y);"));
+		Assert.assertEquals(1, cachedBuild(project, "second", "-cp", src));
+
+		// another opSum may change which one Program calls
+		Files.writeString(vec, Files.readString(vec).replace("public static Vec opNegate", "public static Vec opSum(Vec a, int b)\n" +
+		                                                                                   "\t{\n\t\treturn new Vec(a.x + b, a.y + b);\n\t}\n\n" +
+		                                                                                   "\tpublic static Vec opNegate"));
+		Assert.assertEquals(0, cachedBuild(project, "third", "-cp", src));
+	}
+
+	@Test
+	public void rewriteCacheReusesUnchangedFiles()
+	{
+		var project = Driver.project("rewriteCache");
+		var src = project.resolve("src");
+
+		Assert.assertEquals(0, cachedBuild(project, "first", "-cp", src));
+		Assert.assertFalse(cacheEntries(project.resolve("cache")).isEmpty());
+		Assert.assertEquals(cacheEntries(project.resolve("cache")).size(), cachedBuild(project, "second", "-cp", src));
+	}
+
+	@Test
+	public void rewritingIsRecordedAsJfrEvents() throws IOException
+	{
+		var project = Driver.project("rewriteCache");
+		var src = project.resolve("src");
+		var recordingFile = project.resolve("rewrite.jfr");
+
+		try(var recording = new Recording())
+		{
+			recording.enable("dev.mgrech.javaopc.Phase").withThreshold(Duration.ZERO);
+			recording.enable("dev.mgrech.javaopc.File").withThreshold(Duration.ZERO);
+			recording.start();
+
+			var result = Driver.javaopc("-cp", src, "-d", project.resolve("classes"), Driver.sources(src));
+			Assert.assertEquals(result.output, 0, result.exitCode);
+
+			recording.stop();
+			recording.dump(recordingFile);
+		}
+
+		var rewritten = new TreeMap<String, Boolean>();
+		var phases = new TreeMap<String, List<String>>();
+
+		for(var event : RecordingFile.readAllEvents(recordingFile))
+		{
+			var file = event.getString("file");
+
+			if(event.getEventType().getName().equals("dev.mgrech.javaopc.File"))
+			{
+				rewritten.put(file, event.getBoolean("rewritten"));
+				Assert.assertTrue(file, event.getLong("parseNanos") > 0);
+			}
+			else
+				phases.computeIfAbsent(file, f -> new ArrayList<>()).add(event.getString("phase"));
+		}
+
+		Assert.assertEquals(Map.of("num.Program", true, "num.Vec", false), rewritten);
+		Assert.assertEquals(List.of("check", "parse", "print", "rewrite"), phases.get("num.Program").stream().sorted().collect(Collectors.toList()));
+	}
+
 	@Test
 	public void simpleCompoundAssignmentRewritingCompiles()
 	{
@@ -147,4 +812,96 @@ public class Tests
 	{
 		Driver.runTest();
 	}
+
+	@Test
+	public void sourceIndexFollowsChangedFiles() throws IOException
+	{
+		var project = Driver.project("rewriteCache");
+		var src = project.resolve("src");
+		var vec = src.resolve("num/Vec.java");
+
+		var index = SourceIndex.of(src, project.resolve("index"));
+		var generation = index.generation();
+		Assert.assertEquals(vec, index.locate("num.Vec").file);
+
+		// nothing changed, so nothing is scanned again
+		Assert.assertEquals(generation, SourceIndex.of(src, project.resolve("index")).generation());
+
+		// the modification time alone tells that the file changed, its size is the same
+		Files.writeString(vec, Files.readString(vec).replace("class Vec", "class Vex"));
+		Files.setLastModifiedTime(vec, FileTime.fromMillis(Files.getLastModifiedTime(vec).toMillis() + 2000));
+
+		index = SourceIndex.of(src, project.resolve("index"));
+		Assert.assertNotEquals(generation, index.generation());
+		Assert.assertNull(index.locate("num.Vec"));
+		Assert.assertEquals(vec, index.locate("num.Vex").file);
+
+		// adding a file modifies its directory
+		generation = index.generation();
+		var extra = src.resolve("num/Extra.java");
+		Files.writeString(extra, "package num;\n\nclass Extra\n{\n\tclass Inner\n\t{\n\t}\n}\n");
+		Files.setLastModifiedTime(extra.getParent(), FileTime.fromMillis(Files.getLastModifiedTime(extra.getParent()).toMillis() + 2000));
+
+		index = SourceIndex.of(src, project.resolve("index"));
+		Assert.assertNotEquals(generation, index.generation());
+		Assert.assertEquals(extra, index.locate("num.Extra.Inner").file);
+	}
+
+	@Test
+	public void statsReportEveryFile() throws IOException
+	{
+		var project = Driver.project("rewriteCache");
+		var src = project.resolve("src");
+		var statsFile = project.resolve("stats.json");
+
+		var result = Driver.javaopc("--stats", statsFile, "-cp", src, "-d", project.resolve("classes"), Driver.sources(src));
+		Assert.assertEquals(result.output, 0, result.exitCode);
+
+		Assert.assertEquals(2, stat(statsFile, "parsed"));
+		Assert.assertEquals(1, stat(statsFile, "rewritten"));
+		Assert.assertEquals(0, stat(statsFile, "prefiltered"));
+		Assert.assertEquals(0, stat(statsFile, "cached"));
+
+		// one line per file, ordered by name
+		var files = Files.readAllLines(statsFile).stream().filter(l -> l.trim().startsWith("{\"file\": ")).collect(Collectors.toList());
+		Assert.assertEquals(2, files.size());
+		Assert.assertTrue(files.get(0), files.get(0).contains("{\"file\": \"num.Program\", \"rewritten\": true, \"parseNanos\": "));
+		Assert.assertTrue(files.get(1), files.get(1).contains("{\"file\": \"num.Vec\", \"rewritten\": false, \"parseNanos\": "));
+
+		// Program resolves its operators, Vec only declares them
+		var probes = Pattern.compile("\"candidateProbes\": (\\d+)");
+		var programProbes = probes.matcher(files.get(0));
+		var vecProbes = probes.matcher(files.get(1));
+		Assert.assertTrue(programProbes.find() && vecProbes.find());
+		Assert.assertTrue(files.get(0), Long.parseLong(programProbes.group(1)) > 0);
+		Assert.assertEquals(files.get(1), "0", vecProbes.group(1));
+		Assert.assertTrue(stat(statsFile, "candidateProbes") >= Long.parseLong(programProbes.group(1)));
+	}
+
+	@Test
+	public void typeMetadataKeepsDependenciesOfSupertypes() throws IOException
+	{
+		var project = Driver.project("typeMetadataDependencies");
+		var src = project.resolve("src");
+		var cache = project.resolve("cache");
+		var rate = src.resolve("num/Rate.java");
+
+		// Daily and Weekly invoke the method Tariff inherits from Rate, the second one to be rewritten knows it from the first
+		var result = Driver.javaopc("--rewrite-cache", cache, "-cp", src, "-d", project.resolve("first"), Driver.sources(src));
+		Assert.assertEquals(result.output, 0, result.exitCode);
+		Assert.assertEquals(Driver.expectedOutput("typeMetadataDependencies"), Driver.runMain(project.resolve("first"), "num.Program"));
+
+		// both depend on Rate, neither may be taken from the cache
+		Files.writeString(rate, Files.readString(rate).replace("apply", "cost"));
+
+		result = Driver.javaopc("--rewrite-cache", cache, "-cp", src, "-d", project.resolve("second"), Driver.sources(src));
+		Assert.assertEquals(result.output, 0, result.exitCode);
+		Assert.assertEquals(Driver.expectedOutput("typeMetadataDependencies"), Driver.runMain(project.resolve("second"), "num.Program"));
+	}
+
+	@Test
+	public void typeVariablesOfDifferentClassesResolveSeparately()
+	{
+		Driver.runTest();
+	}
 }
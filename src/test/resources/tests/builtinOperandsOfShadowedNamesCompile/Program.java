@@ -0,0 +1,59 @@
+import java.util.function.IntBinaryOperator;
+
+public class Program
+{
+	// hides java.lang.Integer within Program
+	static class Integer
+	{
+		final int value;
+
+		Integer(int value)
+		{
+			this.value = value;
+		}
+
+		public static Integer opSum(Integer a, Integer b)
+		{
+			return new Integer(a.value + b.value);
+		}
+
+		public static Integer opProduct(Integer a, int b)
+		{
+			return new Integer(a.value * b);
+		}
+
+		public String toString()
+		{
+			return "Integer " + value;
+		}
+	}
+
+	static Integer n = new Integer(10);
+
+	public static void main(String[] args)
+	{
+		Integer a = new Integer(1);
+		Integer b = new Integer(2);
+		System.out.println(a + b);
+
+		int x = 3;
+		long y = 4;
+		java.lang.Integer boxed = 5;
+		System.out.println(x * y + 1);
+		System.out.println(boxed + x);
+
+		// locals and parameters shadow the field, but only where they are in scope
+		{
+			int n = 1;
+			System.out.println(n + 1);
+		}
+
+		IntBinaryOperator add = (n, m) -> n + m;
+		System.out.println(add.applyAsInt(2, 3));
+		System.out.println(n + n);
+		System.out.println(n * x);
+
+		for(var i = 0; i != 2; ++i)
+			System.out.println(n * i);
+	}
+}
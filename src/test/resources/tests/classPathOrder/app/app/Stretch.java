@@ -0,0 +1,12 @@
+package app;
+
+import num.Scale;
+import num.Vec;
+
+public class Stretch
+{
+	public static Vec scale(Vec v, Scale s)
+	{
+		return v * s;
+	}
+}
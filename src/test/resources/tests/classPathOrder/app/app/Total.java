@@ -0,0 +1,11 @@
+package app;
+
+import java.math.BigInteger;
+
+public class Total
+{
+	public static BigInteger total(BigInteger a, BigInteger b)
+	{
+		return a + b;
+	}
+}
@@ -0,0 +1,11 @@
+package num;
+
+public class Scale
+{
+	public final int factor;
+
+	public Scale(int factor)
+	{
+		this.factor = factor;
+	}
+}
@@ -0,0 +1,17 @@
+package num;
+
+public class Vec
+{
+	public final int x, y;
+
+	public Vec(int x, int y)
+	{
+		this.x = x;
+		this.y = y;
+	}
+
+	public static Vec opProduct(Vec v, Scale s)
+	{
+		return new Vec(v.x * s.factor, v.y * s.factor);
+	}
+}
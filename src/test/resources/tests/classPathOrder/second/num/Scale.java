@@ -0,0 +1,16 @@
+package num;
+
+public class Scale
+{
+	public final int factor;
+
+	public Scale(int factor)
+	{
+		this.factor = factor;
+	}
+
+	public static Vec opProduct(Vec v, Scale s)
+	{
+		return new Vec(v.x * s.factor, v.y * s.factor);
+	}
+}
@@ -0,0 +1,12 @@
+package num;
+
+public class Vec
+{
+	public final int x, y;
+
+	public Vec(int x, int y)
+	{
+		this.x = x;
+		this.y = y;
+	}
+}
@@ -0,0 +1,28 @@
+class Counter implements Comparable<Counter>
+{
+	private final int count;
+
+	public Counter(int count)
+	{
+		this.count = count;
+	}
+
+	public int compareTo(Counter other)
+	{
+		return Integer.compare(count, other.count);
+	}
+
+	public static int opInvoke(Counter counter, int step)
+	{
+		return counter.count + step;
+	}
+}
+
+public class Program
+{
+	public static void main(String[] args)
+	{
+		var counter = new Counter(40);
+		System.out.println(counter(2));
+	}
+}
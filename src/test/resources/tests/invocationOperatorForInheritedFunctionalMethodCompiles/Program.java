@@ -0,0 +1,14 @@
+import java.util.function.IntUnaryOperator;
+
+interface Doubler extends IntUnaryOperator
+{
+}
+
+public class Program
+{
+	public static void main(String[] args)
+	{
+		Doubler double_ = i -> 2 * i;
+		System.out.println(double_(21));
+	}
+}
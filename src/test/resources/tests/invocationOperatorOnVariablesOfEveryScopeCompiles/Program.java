@@ -0,0 +1,62 @@
+import java.util.function.Function;
+
+class Doubler
+{
+	public static int opInvoke(Doubler doubler, int i)
+	{
+		return 2 * i;
+	}
+}
+
+class Base
+{
+	protected final Doubler inherited = new Doubler();
+}
+
+public class Program extends Base
+{
+	private static final Doubler field = new Doubler();
+
+	static class Nested
+	{
+		int run(int i)
+		{
+			return field(i);
+		}
+	}
+
+	// a method of the same name as a variable is still an ordinary call
+	static int square(int square)
+	{
+		return square * square;
+	}
+
+	int viaInheritedField(int i)
+	{
+		return inherited(i);
+	}
+
+	public static void main(String[] args)
+	{
+		var local = new Doubler();
+		Function<Doubler, Integer> lambda = parameter -> parameter(6);
+
+		var anonymous = new Object()
+		{
+			final Doubler member = new Doubler();
+
+			int run(int i)
+			{
+				return member(i);
+			}
+		};
+
+		System.out.println(field(1));
+		System.out.println(local(2));
+		System.out.println(square(3));
+		System.out.println(new Program().viaInheritedField(4));
+		System.out.println(new Nested().run(5));
+		System.out.println(lambda.apply(new Doubler()));
+		System.out.println(anonymous.run(7));
+	}
+}
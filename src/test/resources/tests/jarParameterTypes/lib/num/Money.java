@@ -0,0 +1,29 @@
+package num;
+
+import java.math.BigInteger;
+
+public class Money
+{
+	public final BigInteger cents;
+
+	public Money(BigInteger cents)
+	{
+		this.cents = cents;
+	}
+
+	public static BigInteger opConvert(Money money)
+	{
+		return money.cents;
+	}
+
+	public static Money opSum(Money money, BigInteger cents)
+	{
+		return new Money(money.cents.add(cents));
+	}
+
+	@Override
+	public String toString()
+	{
+		return cents + " cents";
+	}
+}
@@ -0,0 +1,24 @@
+package app;
+
+import num.Money;
+
+import java.math.BigInteger;
+
+public class Program
+{
+	static Money add(Money money, BigInteger cents)
+	{
+		return money + cents;
+	}
+
+	static boolean less(BigInteger cents, Money money)
+	{
+		return cents < money;
+	}
+
+	public static void main(String[] args)
+	{
+		System.out.println(add(new Money(BigInteger.TEN), BigInteger.TWO));
+		System.out.println(less(BigInteger.ONE, new Money(BigInteger.TEN)));
+	}
+}
@@ -0,0 +1,25 @@
+package shapes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class Polygon
+{
+	private final List<Vec> points = new ArrayList<>();
+
+	public Polygon add(Vec point)
+	{
+		points.add(point);
+		return this;
+	}
+
+	public static Vec opSubscriptGet(Polygon polygon, int index)
+	{
+		return polygon.points.get(index);
+	}
+
+	public int size()
+	{
+		return points.size();
+	}
+}
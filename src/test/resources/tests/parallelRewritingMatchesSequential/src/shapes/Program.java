@@ -0,0 +1,16 @@
+package shapes;
+
+public class Program
+{
+	public static void main(String[] args)
+	{
+		var square = new Polygon().add(new Vec(0, 0)).add(new Vec(1, 0)).add(new Vec(1, 1)).add(new Vec(0, 1));
+		var moved = Transforms.translate(Transforms.scale(square, 3), new Vec(2, -1));
+		var mirrored = Transforms.mirror(moved);
+
+		for(var i = 0; i != moved.size(); ++i)
+			System.out.println(moved[i] + " " + mirrored[i]);
+
+		System.out.println(Transforms.perimeter(square) + " " + (moved[2] - moved[0]));
+	}
+}
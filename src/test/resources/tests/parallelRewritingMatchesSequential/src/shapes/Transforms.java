@@ -0,0 +1,44 @@
+package shapes;
+
+public class Transforms
+{
+	public static Polygon translate(Polygon polygon, Vec offset)
+	{
+		var result = new Polygon();
+
+		for(var i = 0; i != polygon.size(); ++i)
+			result.add(polygon[i] + offset);
+
+		return result;
+	}
+
+	public static Polygon scale(Polygon polygon, int factor)
+	{
+		var result = new Polygon();
+
+		for(var i = 0; i != polygon.size(); ++i)
+			result.add(polygon[i] * factor);
+
+		return result;
+	}
+
+	public static Polygon mirror(Polygon polygon)
+	{
+		var result = new Polygon();
+
+		for(var i = 0; i != polygon.size(); ++i)
+			result.add(-polygon[i]);
+
+		return result;
+	}
+
+	public static Vec perimeter(Polygon polygon)
+	{
+		var sum = new Vec(0, 0);
+
+		for(var i = 0; i != polygon.size(); ++i)
+			sum += polygon[(i + 1) % polygon.size()] - polygon[i];
+
+		return sum;
+	}
+}
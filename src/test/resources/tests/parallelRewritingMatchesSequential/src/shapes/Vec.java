@@ -0,0 +1,38 @@
+package shapes;
+
+public class Vec
+{
+	public final int x, y;
+
+	public Vec(int x, int y)
+	{
+		this.x = x;
+		this.y = y;
+	}
+
+	public static Vec opSum(Vec a, Vec b)
+	{
+		return new Vec(a.x + b.x, a.y + b.y);
+	}
+
+	public static Vec opDifference(Vec a, Vec b)
+	{
+		return new Vec(a.x - b.x, a.y - b.y);
+	}
+
+	public static Vec opProduct(Vec a, int b)
+	{
+		return new Vec(a.x * b, a.y * b);
+	}
+
+	public static Vec opNegate(Vec a)
+	{
+		return new Vec(-a.x, -a.y);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "(" + x + ", " + y + ")";
+	}
+}
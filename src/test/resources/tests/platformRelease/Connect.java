@@ -0,0 +1,18 @@
+import java.net.http.HttpClient;
+
+// java.net.http was added in 11
+class Connect
+{
+	Session connect(Session session, HttpClient client)
+	{
+		return session + client;
+	}
+}
+
+class Session
+{
+	static Session opSum(Session session, HttpClient client)
+	{
+		return session;
+	}
+}
@@ -0,0 +1,9 @@
+package app;
+
+public class Derived extends ops.Base
+{
+	public Derived(int value)
+	{
+		super(value);
+	}
+}
@@ -0,0 +1,14 @@
+package app;
+
+import ops.Outer;
+import ops.Outer.Inner;
+
+public class Nested
+{
+	public static Object sum()
+	{
+		Inner a = Outer.make(1);
+		Inner b = Outer.make(2);
+		return a + b;
+	}
+}
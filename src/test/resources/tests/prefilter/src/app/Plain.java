@@ -0,0 +1,17 @@
+package app;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class Plain
+{
+	private static final Map<String, List<Integer>> GROUPS = new TreeMap<>();
+
+	public static String describe(int x)
+	{
+		GROUPS.computeIfAbsent(x < 10 ? "small" : "large", k -> new ArrayList<>()).add(x * 2 + 1);
+		return "plain " + Math.max(x, 1) + " " + GROUPS;
+	}
+}
@@ -0,0 +1,14 @@
+package app;
+
+public class Program
+{
+	public static void main(String[] args)
+	{
+		System.out.println(StaticImport.nothing());
+		System.out.println(WildcardImport.twice());
+		System.out.println(ops.SamePackage.twice(new ops.Money(3)));
+		System.out.println(Nested.sum());
+		System.out.println(ViaSupertype.sum());
+		System.out.println(Plain.describe(4));
+	}
+}
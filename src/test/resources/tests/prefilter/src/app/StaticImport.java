@@ -0,0 +1,11 @@
+package app;
+
+import static ops.Money.*;
+
+public class StaticImport
+{
+	public static Object nothing()
+	{
+		return zero() + zero();
+	}
+}
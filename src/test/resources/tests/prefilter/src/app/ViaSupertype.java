@@ -0,0 +1,11 @@
+package app;
+
+public class ViaSupertype
+{
+	public static int sum()
+	{
+		var a = new Derived(3);
+		var b = new Derived(4);
+		return (a + b).value;
+	}
+}
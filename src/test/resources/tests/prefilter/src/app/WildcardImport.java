@@ -0,0 +1,12 @@
+package app;
+
+import ops.*;
+
+public class WildcardImport
+{
+	public static Object twice()
+	{
+		var wallet = new Wallet();
+		return wallet.total() + wallet.total();
+	}
+}
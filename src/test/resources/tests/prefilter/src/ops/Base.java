@@ -0,0 +1,16 @@
+package ops;
+
+public class Base
+{
+	public final int value;
+
+	public Base(int value)
+	{
+		this.value = value;
+	}
+
+	public static Base opSum(Base a, Base b)
+	{
+		return new Base(a.value + b.value);
+	}
+}
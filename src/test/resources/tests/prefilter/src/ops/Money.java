@@ -0,0 +1,27 @@
+package ops;
+
+public class Money
+{
+	public final int cents;
+
+	public Money(int cents)
+	{
+		this.cents = cents;
+	}
+
+	public static Money zero()
+	{
+		return new Money(0);
+	}
+
+	public static Money opSum(Money a, Money b)
+	{
+		return new Money(a.cents + b.cents);
+	}
+
+	@Override
+	public String toString()
+	{
+		return cents + " cents";
+	}
+}
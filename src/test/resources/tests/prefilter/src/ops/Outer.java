@@ -0,0 +1,30 @@
+package ops;
+
+public class Outer
+{
+	public static class Inner
+	{
+		final int value;
+
+		Inner(int value)
+		{
+			this.value = value;
+		}
+
+		public static Inner opSum(Inner a, Inner b)
+		{
+			return new Inner(a.value + b.value);
+		}
+
+		@Override
+		public String toString()
+		{
+			return "inner " + value;
+		}
+	}
+
+	public static Inner make(int value)
+	{
+		return new Inner(value);
+	}
+}
@@ -0,0 +1,9 @@
+package ops;
+
+public class SamePackage
+{
+	public static Money twice(Money money)
+	{
+		return money + money;
+	}
+}
@@ -0,0 +1,10 @@
+package ops;
+
+// mentions an operator type, but declares no operators itself
+public class Wallet
+{
+	public Money total()
+	{
+		return new Money(250);
+	}
+}
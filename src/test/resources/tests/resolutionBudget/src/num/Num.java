@@ -0,0 +1,28 @@
+package num;
+
+public class Num
+{
+	private final int value;
+
+	public Num(int value)
+	{
+		this.value = value;
+	}
+
+	// applies to an int by boxing, which is not a strict invocation, so conversions are tried as well
+	public static Num opSum(Num a, Integer b)
+	{
+		return new Num(a.value + b);
+	}
+
+	public static Num opSum(Num a, Num b)
+	{
+		return new Num(a.value + b.value);
+	}
+
+	@Override
+	public String toString()
+	{
+		return Integer.toString(value);
+	}
+}
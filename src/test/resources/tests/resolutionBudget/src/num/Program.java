@@ -0,0 +1,15 @@
+package num;
+
+public class Program
+{
+	public static Num opConvert(int value)
+	{
+		return new Num(value * 10);
+	}
+
+	public static void main(String[] args)
+	{
+		var n = new Num(1);
+		System.out.println(n + 2);
+	}
+}
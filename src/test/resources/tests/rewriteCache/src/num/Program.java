@@ -0,0 +1,13 @@
+package num;
+
+public class Program
+{
+	public static void main(String[] args)
+	{
+		var a = new Vec(1, 2);
+		var b = new Vec(3, 4);
+		var c = a + b;
+		c += -a;
+		System.out.println(c);
+	}
+}
@@ -0,0 +1,28 @@
+package num;
+
+public class Vec
+{
+	public final int x, y;
+
+	public Vec(int x, int y)
+	{
+		this.x = x;
+		this.y = y;
+	}
+
+	public static Vec opSum(Vec a, Vec b)
+	{
+		return new Vec(a.x + b.x, a.y + b.y);
+	}
+
+	public static Vec opNegate(Vec a)
+	{
+		return new Vec(-a.x, -a.y);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "(" + x + ", " + y + ")";
+	}
+}
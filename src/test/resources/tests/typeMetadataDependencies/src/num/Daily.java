@@ -0,0 +1,9 @@
+package num;
+
+public class Daily
+{
+	public static int charge(Tariff tariff, int days)
+	{
+		return tariff(days);
+	}
+}
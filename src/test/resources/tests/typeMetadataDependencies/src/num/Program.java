@@ -0,0 +1,11 @@
+package num;
+
+public class Program
+{
+	public static void main(String[] args)
+	{
+		Tariff tariff = amount -> 3 * amount;
+		System.out.println(Daily.charge(tariff, 2));
+		System.out.println(Weekly.charge(tariff, 1));
+	}
+}
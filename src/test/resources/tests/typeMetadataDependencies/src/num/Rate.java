@@ -0,0 +1,6 @@
+package num;
+
+public interface Rate
+{
+	int apply(int amount);
+}
@@ -0,0 +1,5 @@
+package num;
+
+public interface Tariff extends Rate
+{
+}
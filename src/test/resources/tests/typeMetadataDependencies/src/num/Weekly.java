@@ -0,0 +1,9 @@
+package num;
+
+public class Weekly
+{
+	public static int charge(Tariff tariff, int weeks)
+	{
+		return tariff(7 * weeks);
+	}
+}
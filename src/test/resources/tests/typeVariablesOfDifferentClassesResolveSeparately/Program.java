@@ -0,0 +1,60 @@
+class Meters
+{
+	final int value;
+
+	Meters(int value)
+	{
+		this.value = value;
+	}
+}
+
+class Seconds
+{
+	final int value;
+
+	Seconds(int value)
+	{
+		this.value = value;
+	}
+
+	public String toString()
+	{
+		return value + " s";
+	}
+}
+
+public class Program
+{
+	static Seconds opSum(Seconds a, Seconds b)
+	{
+		return new Seconds(a.value + b.value);
+	}
+
+	// the time it takes to walk a distance
+	static Seconds opConvert(Meters distance)
+	{
+		return new Seconds(distance.value * 2);
+	}
+
+	static class Walk<T extends Meters>
+	{
+		Seconds time(T a, T b)
+		{
+			return a + b;
+		}
+	}
+
+	static class Wait<T extends Seconds>
+	{
+		Seconds time(T a, T b)
+		{
+			return a + b;
+		}
+	}
+
+	public static void main(String[] args)
+	{
+		System.out.println(new Walk<>().time(new Meters(1), new Meters(2)));
+		System.out.println(new Wait<>().time(new Seconds(3), new Seconds(4)));
+	}
+}